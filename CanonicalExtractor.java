@@ -0,0 +1,215 @@
+package utilities;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Collects the value of every configured canonical path from a response in one pass.
+ * All "canonical" paths of the config are merged into a trie, so shared prefixes such as
+ * "transaction.merchant" are walked once per message rather than once per path. A response
+ * can be visited as a parsed tree, or streamed with a JsonParser so that branches no path
+ * asks for are skipped without ever being built.
+ */
+public final class CanonicalExtractor {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Node root = new Node();
+    private final Map<String, Integer> pathIds = new HashMap<>();
+
+    private CanonicalExtractor() {
+    }
+
+    /**
+     * Builds the extractor for every canonical path in a field configuration
+     * @param fieldConfig The field configuration
+     */
+    public static CanonicalExtractor compile(Map<String, JsonNode> fieldConfig) {
+        CanonicalExtractor extractor = new CanonicalExtractor();
+        for (JsonNode config : fieldConfig.values()) {
+            JsonNode canonical = config.get("canonical");
+            if (canonical == null || !canonical.isArray()) {
+                continue;
+            }
+            for (JsonNode path : canonical) {
+                String jsonPath = path.asText().trim();
+                if (!jsonPath.isEmpty() && !isPlaceholder(jsonPath)) {
+                    extractor.add(jsonPath);
+                }
+            }
+        }
+        return extractor;
+    }
+
+    /**
+     * Checks whether a canonical entry is a comment or placeholder rather than a real path
+     */
+    static boolean isPlaceholder(String jsonPath) {
+        return jsonPath.contains("-->") || jsonPath.startsWith("Tag :") ||
+                jsonPath.contains("Need to discuss") || jsonPath.contains("not canonicalize");
+    }
+
+    /**
+     * Gets the number of distinct paths collected per message
+     */
+    public int getPathCount() {
+        return pathIds.size();
+    }
+
+    /**
+     * Collects every configured path from a parsed response
+     * @param canonicalJson The parsed canonical response
+     */
+    public Values extract(JsonNode canonicalJson) {
+        JsonNode[] values = new JsonNode[pathIds.size()];
+        visit(canonicalJson, root, values);
+        return new Values(values, canonicalJson);
+    }
+
+    /**
+     * Collects every configured path by streaming the response text; only the values
+     * at configured paths are materialized
+     * @param canonicalResponse The canonical response text
+     * @throws IOException if the response is not valid JSON
+     */
+    public Values extract(String canonicalResponse) throws IOException {
+        JsonNode[] values = new JsonNode[pathIds.size()];
+        try (JsonParser parser = objectMapper.getFactory().createParser(canonicalResponse)) {
+            if (parser.nextToken() != null) {
+                stream(parser, root, values);
+            }
+        }
+        return new Values(values, null);
+    }
+
+    private void add(String jsonPath) {
+        if (pathIds.containsKey(jsonPath)) {
+            return;
+        }
+        int id = pathIds.size();
+        pathIds.put(jsonPath, id);
+
+        Node node = root;
+        for (String part : jsonPath.split("\\.")) {
+            int open = part.indexOf('[');
+            int close = part.indexOf(']', open + 1);
+            if (open >= 0 && close > open) {
+                node = node.field(part.substring(0, open));
+                node = node.element(Integer.parseInt(part.substring(open + 1, close).trim()));
+            } else {
+                node = node.field(part);
+            }
+        }
+        node.pathId = id;
+    }
+
+    private static void visit(JsonNode json, Node node, JsonNode[] values) {
+        if (node.pathId >= 0) {
+            values[node.pathId] = json;
+        }
+        if (node.fields != null) {
+            for (Map.Entry<String, Node> child : node.fields.entrySet()) {
+                JsonNode value = json.get(child.getKey());
+                if (value != null) {
+                    visit(value, child.getValue(), values);
+                }
+            }
+        }
+        if (node.elements != null && json.isArray()) {
+            for (Map.Entry<Integer, Node> child : node.elements.entrySet()) {
+                JsonNode value = json.get(child.getKey());
+                if (value != null) {
+                    visit(value, child.getValue(), values);
+                }
+            }
+        }
+    }
+
+    /**
+     * Consumes the value at the parser's current token, collecting the paths below node
+     */
+    private static void stream(JsonParser parser, Node node, JsonNode[] values) throws IOException {
+        if (node.pathId >= 0) {
+            // A requested value: build just this subtree, and pick any longer paths out of it
+            visit(parser.readValueAsTree(), node, values);
+            return;
+        }
+
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT && node.fields != null) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                Node child = node.fields.get(parser.getCurrentName());
+                parser.nextToken();
+                if (child != null) {
+                    stream(parser, child, values);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } else if (token == JsonToken.START_ARRAY && node.elements != null) {
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                Node child = node.elements.get(index++);
+                if (child != null) {
+                    stream(parser, child, values);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } else {
+            parser.skipChildren();
+        }
+    }
+
+    private static final class Node {
+        private Map<String, Node> fields;
+        private Map<Integer, Node> elements;
+        private int pathId = -1;
+
+        Node field(String name) {
+            if (fields == null) {
+                fields = new HashMap<>();
+            }
+            return fields.computeIfAbsent(name, key -> new Node());
+        }
+
+        Node element(int index) {
+            if (elements == null) {
+                elements = new HashMap<>();
+            }
+            return elements.computeIfAbsent(index, key -> new Node());
+        }
+    }
+
+    /**
+     * The values collected from one response, indexed by path
+     */
+    public final class Values {
+        private final JsonNode[] values;
+        private final JsonNode canonicalJson;
+
+        private Values(JsonNode[] values, JsonNode canonicalJson) {
+            this.values = values;
+            this.canonicalJson = canonicalJson;
+        }
+
+        /**
+         * Gets the node at a path
+         * @param jsonPath The path as written in the config
+         * @return The node, or null if the response has nothing at that path. Paths that are not
+         * in the config are resolved directly against the tree when the response was parsed.
+         */
+        public JsonNode get(String jsonPath) {
+            Integer id = pathIds.get(jsonPath);
+            if (id != null) {
+                return values[id];
+            }
+            return canonicalJson != null ? CanonicalPath.compile(jsonPath).find(canonicalJson) : null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package utilities;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A dotted canonical path such as "transaction.amounts[0].value", split and index-parsed once
+ * and reused for every message. Compiled paths are cached process-wide by their text.
+ * Field names that only match case-insensitively are remembered per segment, so the
+ * fallback scan of field names runs once rather than on every lookup.
+ */
+public final class CanonicalPath {
+    private static final Map<String, CanonicalPath> compiled = new ConcurrentHashMap<>();
+
+    private final String path;
+    private final String[] names;
+    private final int[] indexes;
+    private final String[] resolvedNames;
+
+    private CanonicalPath(String path) {
+        this.path = path;
+        String[] parts = path.split("\\.");
+        this.names = new String[parts.length];
+        this.indexes = new int[parts.length];
+        this.resolvedNames = new String[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i];
+            int open = part.indexOf('[');
+            int close = part.indexOf(']', open + 1);
+            if (open >= 0 && close > open) {
+                names[i] = part.substring(0, open);
+                indexes[i] = Integer.parseInt(part.substring(open + 1, close).trim());
+            } else {
+                names[i] = part;
+                indexes[i] = -1;
+            }
+        }
+    }
+
+    /**
+     * Gets the compiled form of a path, compiling it on first use
+     * @param path The dotted path, with optional [n] array indexes
+     * @throws NumberFormatException if an array index is not a number
+     */
+    public static CanonicalPath compile(String path) {
+        CanonicalPath cached = compiled.get(path);
+        return cached != null ? cached : compiled.computeIfAbsent(path, CanonicalPath::new);
+    }
+
+    /**
+     * Follows the path with exact field names
+     * @param root The canonical JSON
+     * @return The node at the path, or null if any segment is missing
+     */
+    public JsonNode find(JsonNode root) {
+        JsonNode current = root;
+        for (int i = 0; i < names.length; i++) {
+            current = current.path(names[i]);
+            if (indexes[i] >= 0) {
+                current = current.path(indexes[i]);
+            }
+            if (current.isMissingNode()) {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Follows the path, falling back to a case-insensitive field name match
+     * @param root The canonical JSON
+     * @return The trimmed text at the path, or "" if it is missing or null
+     */
+    public String getText(JsonNode root) {
+        JsonNode current = root;
+        for (int i = 0; i < names.length; i++) {
+            JsonNode next = current.path(names[i]);
+            if (next.isMissingNode()) {
+                next = resolveIgnoreCase(current, i);
+                if (next == null) {
+                    return ""; // Path not found
+                }
+            }
+            if (indexes[i] >= 0) {
+                next = next.path(indexes[i]);
+                if (next.isMissingNode()) {
+                    return "";
+                }
+            }
+            current = next;
+        }
+        return current.isNull() ? "" : current.asText().trim();
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    private JsonNode resolveIgnoreCase(JsonNode current, int segment) {
+        String resolved = resolvedNames[segment];
+        if (resolved != null) {
+            JsonNode next = current.path(resolved);
+            if (!next.isMissingNode()) {
+                return next;
+            }
+        }
+
+        Iterator<String> fieldNames = current.fieldNames();
+        while (fieldNames.hasNext()) {
+            String fieldName = fieldNames.next();
+            if (fieldName.equalsIgnoreCase(names[segment])) {
+                resolvedNames[segment] = fieldName;
+                return current.path(fieldName);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,105 @@
+package utilities;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only canonical path lists per DE, built once per config and safe to share between rows.
+ * DEs whose paths depend on the message get one precomputed list per variant:
+ * DE 60 by type indicator (80 reversal drops the adviceReason paths, 40 advice drops the
+ * reversalReason paths) and DE 111 by format identifier (only the paths listed under
+ * validation.rules.formatIdentifiers.&lt;id&gt;.paths). Other variants use every configured path.
+ */
+public final class CanonicalPathSelector {
+    private final Map<String, List<String>> pathsByDe = new HashMap<>();
+    private final Map<String, Map<String, List<String>>> variantsByDe = new HashMap<>();
+
+    private CanonicalPathSelector() {
+    }
+
+    /**
+     * Builds the path lists for a field configuration
+     * @param fieldConfig The field configuration
+     */
+    public static CanonicalPathSelector compile(Map<String, JsonNode> fieldConfig) {
+        CanonicalPathSelector selector = new CanonicalPathSelector();
+        fieldConfig.forEach((de, config) -> {
+            JsonNode canonical = config.get("canonical");
+            if (canonical == null || !canonical.isArray()) {
+                return;
+            }
+            List<String> paths = new ArrayList<>();
+            canonical.forEach(path -> paths.add(path.asText()));
+            selector.pathsByDe.put(de, Collections.unmodifiableList(paths));
+        });
+
+        List<String> de60Paths = selector.getPaths("60");
+        if (!de60Paths.isEmpty()) {
+            Map<String, List<String>> variants = new HashMap<>();
+            variants.put("80", without(de60Paths, "adviceReason"));
+            variants.put("40", without(de60Paths, "reversalReason"));
+            selector.variantsByDe.put("60", variants);
+        }
+
+        List<String> de111Paths = selector.getPaths("111");
+        JsonNode formatIdentifiers = fieldConfig.containsKey("111")
+                ? fieldConfig.get("111").path("validation").path("rules").path("formatIdentifiers")
+                : null;
+        if (!de111Paths.isEmpty() && formatIdentifiers != null && formatIdentifiers.isObject()) {
+            Map<String, List<String>> variants = new HashMap<>();
+            for (Iterator<String> it = formatIdentifiers.fieldNames(); it.hasNext(); ) {
+                String formatIdentifier = it.next();
+                JsonNode formatRules = formatIdentifiers.get(formatIdentifier);
+                if (formatRules.has("paths")) {
+                    Set<String> formatPaths = new HashSet<>();
+                    formatRules.get("paths").forEach(node -> formatPaths.add(node.asText()));
+                    List<String> paths = new ArrayList<>(de111Paths);
+                    paths.removeIf(path -> !formatPaths.contains(path));
+                    variants.put(formatIdentifier, Collections.unmodifiableList(paths));
+                }
+            }
+            selector.variantsByDe.put("111", variants);
+        }
+        return selector;
+    }
+
+    /**
+     * Gets every canonical path configured for a DE
+     * @param de The data element number
+     * @return The paths, empty if the DE has none
+     */
+    public List<String> getPaths(String de) {
+        return pathsByDe.getOrDefault(de, Collections.emptyList());
+    }
+
+    /**
+     * Gets the canonical paths that apply to one message's value of a DE
+     * @param de The data element number
+     * @param expectedValue The DE value, whose first two characters pick the variant for DE 60 and DE 111
+     * @return The paths for the variant, or every configured path if the DE has no variants
+     */
+    public List<String> select(String de, String expectedValue) {
+        Map<String, List<String>> variants = variantsByDe.get(de);
+        if (variants != null && expectedValue != null && expectedValue.length() >= 2) {
+            List<String> variant = variants.get(expectedValue.substring(0, 2));
+            if (variant != null) {
+                return variant;
+            }
+        }
+        return getPaths(de);
+    }
+
+    private static List<String> without(List<String> paths, String excluded) {
+        List<String> kept = new ArrayList<>(paths);
+        kept.removeIf(path -> path.contains(excluded));
+        return Collections.unmodifiableList(kept);
+    }
+}
@@ -0,0 +1,65 @@
+package utilities;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * A canonical JSON response parsed at most once per message and shared by every DE validator.
+ * The tree is only built when a validator first asks for it, so messages whose DEs can be
+ * checked from extracted path values alone are never fully parsed.
+ * The raw text is kept alongside the tree because validation results report it verbatim.
+ */
+public final class CanonicalResponse {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String raw;
+    private JsonNode json;
+
+    /**
+     * @param raw The response as returned by the canonical service
+     */
+    public CanonicalResponse(String raw) {
+        this.raw = raw;
+    }
+
+    /**
+     * @param raw The response as returned by the canonical service
+     * @param json The parsed form of raw
+     */
+    public CanonicalResponse(String raw, JsonNode json) {
+        this.raw = raw;
+        this.json = json;
+    }
+
+    /**
+     * Gets the response text as returned by the canonical service
+     */
+    public String getRaw() {
+        return raw;
+    }
+
+    /**
+     * Gets the parsed response tree, parsing it on first use; validators must treat it as read-only
+     * @throws IOException if the response is not valid JSON
+     */
+    public JsonNode getJson() throws IOException {
+        if (json == null) {
+            json = objectMapper.readTree(raw);
+        }
+        return json;
+    }
+
+    /**
+     * Checks whether the tree has been built yet
+     */
+    public boolean isParsed() {
+        return json != null;
+    }
+
+    @Override
+    public String toString() {
+        return raw;
+    }
+}
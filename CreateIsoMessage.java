@@ -2,23 +2,21 @@ package utilities;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.cucumber.datatable.DataTable;
-import lombok.Getter;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import websocket.WebSocketClient;
-import websocket.WebSocketManager;
 
 import java.io.*;
 import java.math.BigDecimal;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 import static utilities.CustomTestData.generateCustomValue;
@@ -31,38 +29,44 @@ import static utilities.IsoBitmapManager.*;
 public class CreateIsoMessage {
     private static final ObjectMapper objectMapper = new ObjectMapper();
     static Map<String, JsonNode> fieldConfig;
-    static final Map<Integer, String> isoFields = new TreeMap<>();
-    private static final Set<String> manuallyUpdatedFields = new HashSet<>(); // Tracks modified fields
+    static IsoFieldPlan fieldPlan;
+    static IsoConfigCache.ConfigSnapshot configSnapshot;
+    static Map<String, DeValidator> deValidators = Collections.emptyMap();
+    // Message being built, kept per thread so spreadsheet rows can be built concurrently
+    private static final ThreadLocal<Map<Integer, String>> rowFields = ThreadLocal.withInitial(TreeMap::new);
+    private static final ThreadLocal<Set<String>> rowManuallyUpdatedFields = ThreadLocal.withInitial(HashSet::new); // Tracks modified fields
     private static final String DEFAULT_MTI = "0100"; // Default MTI value
+    // Rows per worker chunk: sent to the canonical service in one request and pipelined over the WebSocket session.
+    // 1 keeps the one-request-per-row behaviour and leaves a single request in flight per worker
+    private static final int CANONICAL_BATCH_SIZE = Math.max(1, Integer.getInteger("iso.canonical.batchSize", 1));
+    // Spreadsheet rows processed concurrently; 1 processes rows one after another
+    private static final int ROW_WORKERS = Math.max(1, Integer.getInteger("iso.rows.workers", 1));
+    // Output rows kept in memory by generateIsoFromSpreadsheetStreaming before they are flushed to disk
+    private static final int STREAM_ROW_WINDOW = Math.max(1, Integer.getInteger("iso.stream.rowWindow", 100));
+    // Spreadsheet runs pick up from their checkpoint journal instead of starting over
+    private static final boolean RESUME_RUNS = Boolean.getBoolean("iso.resume");
     
-    // Add storage for validation results
-    public static final Map<Integer, ValidationResult> validationResults = new HashMap<>();
+    // Validation totals of the current run, updated as each row finishes
+    private static AggregatedResults aggregatedResults = new AggregatedResults();
     
     // Thread local storage for current row index
     public static final ThreadLocal<Integer> currentRowIndex = new ThreadLocal<>();
+    // DataFormatter caches parsed formats but is not thread-safe, so each reading thread keeps one
+    private static final ThreadLocal<DataFormatter> cellFormatter = ThreadLocal.withInitial(DataFormatter::new);
+    // Column table of the header row read last by extractDEValuesFromExcel
+    private static Row describedHeaderRow;
+    private static Map<String, JsonNode> describedFieldConfig;
+    private static SheetColumn[] describedColumns;
     
-    // Store validation summaries for each row
-    private static final Map<Integer, RowValidationSummary> rowValidationSummaries = new HashMap<>();
-    
-    @Getter
-    public static class RowValidationSummary {
-        private final int rowNumber;
-        private final int totalFields;
-        private final long passCount;
-        private final long failCount;
-        private final long skipCount;
-        private final String failedDEs;
-        private final String skippedDEs;
-        
-        public RowValidationSummary(int rowNumber, int totalFields, long passCount, long failCount, long skipCount, String failedDEs, String skippedDEs) {
-            this.rowNumber = rowNumber;
-            this.totalFields = totalFields;
-            this.passCount = passCount;
-            this.failCount = failCount;
-            this.skipCount = skipCount;
-            this.failedDEs = failedDEs;
-            this.skippedDEs = skippedDEs;
-        }
+    /**
+     * Gets the fields of the message being built on the current thread, keyed by DE number (0 is the MTI)
+     */
+    static Map<Integer, String> isoFields() {
+        return rowFields.get();
+    }
+
+    private static Set<String> manuallyUpdatedFields() {
+        return rowManuallyUpdatedFields.get();
     }
 
     /**
@@ -70,47 +74,44 @@ public class CreateIsoMessage {
      * @return A summary string with total counts
      */
     public static String getTotalValidationSummary() {
-        if (rowValidationSummaries.isEmpty()) {
-            return "No validation results available";
-        }
-
-        long totalFields = 0;
-        long totalPassed = 0;
-        long totalFailed = 0;
-        long totalSkipped = 0;
-        Set<String> allFailedDEs = new HashSet<>();
-        Set<String> allSkippedDEs = new HashSet<>();
-
-        // Sum up the counts from each row's summary
-        for (RowValidationSummary summary : rowValidationSummaries.values()) {
-            totalFields += summary.getTotalFields();
-            totalPassed += summary.getPassCount();
-            totalFailed += summary.getFailCount();
-            totalSkipped += summary.getSkipCount();
-            
-            if (!summary.getFailedDEs().isEmpty()) {
-                allFailedDEs.addAll(Arrays.asList(summary.getFailedDEs().split(", ")));
-            }
-            if (!summary.getSkippedDEs().isEmpty()) {
-                allSkippedDEs.addAll(Arrays.asList(summary.getSkippedDEs().split(", ")));
+        AggregatedResults totals = aggregatedResults;
+        synchronized (totals) {
+            if (totals.getTotalMessages() == 0) {
+                return "No validation results available";
             }
+
+            Set<String> allFailedDEs = new TreeSet<>(DE_ORDER);
+            allFailedDEs.addAll(totals.getFailedByDE().keySet());
+            Set<String> allSkippedDEs = new TreeSet<>(DE_ORDER);
+            allSkippedDEs.addAll(totals.getSkippedByDE().keySet());
+            return String.format(
+                "=== Total Validation Results ===\n" +
+                "Total Rows: %d\n" +
+                "Total Fields: %d\n" +
+                "Total Passed: %d\n" +
+                "Total Failed: %d%s\n" +
+                "Total Skipped: %d%s",
+                totals.getTotalMessages(),
+                totals.getTotalFields(),
+                totals.getTotalPassed(),
+                totals.getTotalFailed(),
+                !allFailedDEs.isEmpty() ? " (DE " + String.join(", ", allFailedDEs) + ")" : "",
+                totals.getTotalSkipped(),
+                !allSkippedDEs.isEmpty() ? " (DE " + String.join(", ", allSkippedDEs) + ")" : ""
+            );
         }
+    }
 
-        return String.format(
-            "=== Total Validation Results ===\n" +
-            "Total Rows: %d\n" +
-            "Total Fields: %d\n" +
-            "Total Passed: %d\n" +
-            "Total Failed: %d%s\n" +
-            "Total Skipped: %d%s",
-            rowValidationSummaries.size(),
-            totalFields,
-            totalPassed,
-            totalFailed,
-            !allFailedDEs.isEmpty() ? " (DE " + String.join(", ", allFailedDEs) + ")" : "",
-            totalSkipped,
-            !allSkippedDEs.isEmpty() ? " (DE " + String.join(", ", allSkippedDEs) + ")" : ""
-        );
+    /**
+     * Starts new run totals, spilling per-row field results to iso.results.detailFile when it is set
+     */
+    private static void startResults() throws IOException {
+        aggregatedResults.close();
+        aggregatedResults = new AggregatedResults();
+        String detailFile = System.getProperty("iso.results.detailFile");
+        if (detailFile != null && !detailFile.isBlank()) {
+            aggregatedResults.spillDetailsTo(Path.of(detailFile));
+        }
     }
 
     public static void createIsoMessage(String requestName, DataTable dt) throws IOException {
@@ -159,29 +160,24 @@ public class CreateIsoMessage {
             pathName = Path.of(filepath + "/src/test/resources/" + filename);
         }
 
-        String s = Files.readString(pathName);
-        JsonNode jsonNode = objectMapper.readTree(s);
-        fieldConfig = new HashMap<>();
-        for (Iterator<String> it = jsonNode.fieldNames(); it.hasNext(); ) {
-            String field = it.next();
-            fieldConfig.put(field, jsonNode.get(field));
-        }
+        // Parsed and compiled once per file version, shared across steps
+        configSnapshot = IsoConfigCache.get(pathName);
+        fieldConfig = configSnapshot.getFieldConfig();
+        fieldPlan = configSnapshot.getPlan();
+        deValidators = configSnapshot.getValidators();
     }
 
     public static void generateDefaultFields() {
         // Ensure MTI defaults to "0100" if not manually set by the user
-        if (!isoFields.containsKey(0) && !manuallyUpdatedFields.contains("MTI")) {
-            isoFields.put(0, DEFAULT_MTI);
+        if (!isoFields().containsKey(0) && !manuallyUpdatedFields().contains("MTI")) {
+            isoFields().put(0, DEFAULT_MTI);
         }
 
-        for (String field : fieldConfig.keySet()) {
-            JsonNode config = fieldConfig.get(field);
-            boolean active = config.get("active").asBoolean();
-
-            if (active && !manuallyUpdatedFields.contains(field)) {
-                if (!field.contains("MTI")) {
-                    addField(field, generateRandomValue(config));
-                }
+        for (int field : fieldPlan.getActiveFields()) {
+            IsoFieldPlan.FieldDescriptor descriptor = fieldPlan.get(field);
+            if (!manuallyUpdatedFields().contains(descriptor.getKey())
+                    && descriptor.getEncoder() != IsoFieldPlan.Encoder.BITMAP) {
+                addField(field, generateRandomText(descriptor.getType(), descriptor.getMaxLength()));
             }
         }
     }
@@ -209,14 +205,14 @@ public class CreateIsoMessage {
         }
 
         // Store the manually updated field & add to ISO message
-        manuallyUpdatedFields.add(fieldNumber);
+        manuallyUpdatedFields().add(fieldNumber);
         addField(fieldNumber, value);
     }
 
     private static void addField(String field, String value) {
         // Handle MTI separately as a string
         if (field.equalsIgnoreCase("MTI")) {
-            isoFields.put(0, value);
+            isoFields().put(0, value);
             return;
         }
 
@@ -234,67 +230,61 @@ public class CreateIsoMessage {
             return;
         }
 
-        // Store field value and update bitmap
-        isoFields.put(fieldNumber, value);
-        setBit(fieldNumber);
+        addField(fieldNumber, value);
     }
 
-    private static String generateRandomValue(JsonNode config) {
-        String type = config.get("type").asText();
-        int maxLength = config.has("max_length") ? config.get("max_length").asInt() : config.get("length").asInt();
-        return generateRandomText(type, maxLength);
+    private static void addField(int fieldNumber, String value) {
+        // Store field value and update bitmap
+        isoFields().put(fieldNumber, value);
+        setBit(fieldNumber);
     }
 
     public static String buildIsoMessage() {
-        StringBuilder message = new StringBuilder();
+        StringBuilder message = new StringBuilder(512);
+        IsoBitmap bitmap = currentBitmap();
 
         // Ensure MTI is included, default to "0100" if not manually set
-        message.append(isoFields.getOrDefault(0, DEFAULT_MTI));
+        message.append(isoFields().getOrDefault(0, DEFAULT_MTI));
 
         // Ensure bitmap is only generated if at least one field is present in DE 1-64
-        if (hasActivePrimaryFields()) {
-            message.append(getPrimaryBitmapHex());
+        if (bitmap.hasPrimaryFields()) {
+            IsoHexCodec.appendHex(message, bitmap.getPrimaryWord());
         }
 
         // Only include Secondary Bitmap if DE 65-128 are present
-        if (hasActiveSecondaryFields()) {
-            message.append(getSecondaryBitmapHex());
+        if (bitmap.hasSecondaryFields()) {
+            IsoHexCodec.appendHex(message, bitmap.getSecondaryWord());
         }
 
-        // Append each field value
-        for (int field : isoFields.keySet()) {
-            JsonNode config = fieldConfig.get(String.valueOf(field));
-            if (config == null) continue;
+        // Append each field value in bitmap order, LLVAR/LLLVAR prefixes come from the compiled encoder
+        for (int field = bitmap.nextSetField(1); field != -1; field = bitmap.nextSetField(field + 1)) {
+            IsoFieldPlan.FieldDescriptor descriptor = fieldPlan.get(field);
+            String value = isoFields().get(field);
+            if (descriptor == null || value == null) continue;
 
-            // LLVAR and LLLVAR handling
-            if ("llvar".equals(config.get("format").asText())) {
-                message.append(String.format("%02d", isoFields.get(field).length()));
-            } else if ("lllvar".equals(config.get("format").asText())) {
-                message.append(String.format("%03d", isoFields.get(field).length()));
-            }
-            message.append(isoFields.get(field));
+            descriptor.getEncoder().append(message, value);
         }
 
         return message.toString();
     }
 
-    private static boolean hasActiveSecondaryFields() {
-        for (int i = 0; i < 64; i++) {
-            if (isSecondaryBitSet(i) && isoFields.containsKey(i + 65)) { // Check fields 65-128
-                return true; // Secondary bitmap is required
-            }
-        }
-        return false; // No active fields in DE 65-128
+    /**
+     * Encodes the current message into a caller supplied buffer, without building a String
+     * @param dest The buffer to write to, starting at its current position
+     * @return The number of bytes written
+     */
+    public static int buildIsoMessage(ByteBuffer dest) {
+        return IsoMessageEncoder.encode(dest, isoFields().getOrDefault(0, DEFAULT_MTI), currentBitmap(), isoFields(), fieldPlan);
     }
 
     public static String buildJsonMessage() throws IOException {
         Map<String, Object> outputJson = new HashMap<>();
 
         // Ensure MTI is correctly stored and printed
-        if (!isoFields.containsKey(0) && !manuallyUpdatedFields.contains("MTI")) {
-            outputJson.put("MTI", isoFields.getOrDefault(0, DEFAULT_MTI));
+        if (!isoFields().containsKey(0) && !manuallyUpdatedFields().contains("MTI")) {
+            outputJson.put("MTI", isoFields().getOrDefault(0, DEFAULT_MTI));
         } else {
-            outputJson.put("MTI", isoFields.get(0));
+            outputJson.put("MTI", isoFields().get(0));
         }
 
         // Print Primary Bitmap only if active
@@ -307,77 +297,28 @@ public class CreateIsoMessage {
             outputJson.put("SecondaryBitmap", getSecondaryBitmapHex());
         }
 
-        // Loop through all fields except MTI (Field_0)
-        for (int field : isoFields.keySet()) {
-            if (field == 0) continue; // Skip MTI from being printed as Field_0
-
-            JsonNode config = fieldConfig.get(String.valueOf(field));
-            if (config == null) continue;
+        // Loop through all fields except MTI (Field_0), which is never set in the bitmap
+        IsoBitmap bitmap = currentBitmap();
+        for (int field = bitmap.nextSetField(1); field != -1; field = bitmap.nextSetField(field + 1)) {
+            IsoFieldPlan.FieldDescriptor descriptor = fieldPlan.get(field);
+            String value = isoFields().get(field);
+            if (descriptor == null || value == null) continue;
 
-            String value = isoFields.get(field);
-            String formattedValue = value;
-
-            // Append LLVAR/LLLVAR length values before the actual data
-            if ("llvar".equals(config.get("format").asText())) {
-                formattedValue = String.format("%02d", value.length()) + value;
-            } else if ("lllvar".equals(config.get("format").asText())) {
-                formattedValue = String.format("%03d", value.length()) + value;
-            }
-
-            // Store correctly formatted field value in JSON output
-            outputJson.put("Field_" + field, formattedValue);
+            // Store correctly formatted field value (with any LLVAR/LLLVAR length) in JSON output
+            outputJson.put("Field_" + field, descriptor.getEncoder().encode(value));
         }
 
         return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(outputJson);
     }
 
-    public static String getFieldNumberFromJsonPath(String jsonPath) {
-        return fieldConfig.entrySet().stream()
-                .filter(entry -> {
-                    JsonNode nameNode = entry.getValue().get("name");
-                    return nameNode != null && jsonPath.equals(nameNode.asText());
-                })
-                .findFirst()
-                .map(Map.Entry::getKey)
-                .orElse(null);
-    }
-
-    private static String bitmapToHex(boolean[] bitmap) {
-        StringBuilder binary = new StringBuilder();
-        for (boolean bit : bitmap) {
-            binary.append(bit ? "1" : "0");
-        }
-
-        // Convert binary string to hex
-        StringBuilder hex = new StringBuilder();
-        for (int i = 0; i < 64; i += 4) {
-            hex.append(Integer.toHexString(Integer.parseInt(binary.substring(i, i + 4), 2)).toUpperCase());
-        }
-        return hex.toString();
-    }
-
     /**
-     * Converts a hexadecimal string to its binary representation
-     * @param hex The hexadecimal string to convert
-     * @return The binary string representation
+     * Resolves a field name (or, failing that, a canonical path) to its config key
+     * @param jsonPath The field name or canonical path
+     * @return The config key ("MTI", "2", ...) or null if nothing matches
      */
-    static String hexToBinary(String hex) {
-        StringBuilder binary = new StringBuilder();
-        for (int i = 0; i < hex.length(); i++) {
-            String bin = String.format("%4s", Integer.toBinaryString(Integer.parseInt(hex.substring(i, i + 1), 16)))
-                    .replace(' ', '0');
-            binary.append(bin);
-        }
-        return binary.toString();
-    }
-
-    private static boolean hasActivePrimaryFields() {
-        for (int i = 0; i < 64; i++) {
-            if (isPrimaryBitSet(i) && isoFields.containsKey(i + 1)) { // Check fields 1-64
-                return true;
-            }
-        }
-        return false;
+    public static String getFieldNumberFromJsonPath(String jsonPath) {
+        String key = fieldPlan.findKeyByName(jsonPath);
+        return key != null ? key : fieldPlan.findKeyByCanonicalPath(jsonPath);
     }
 
     // Helper method to get cell value as string, regardless of cell type
@@ -391,9 +332,14 @@ public class CreateIsoMessage {
                 if (DateUtil.isCellDateFormatted(cell)) {
                     return cell.getDateCellValue().toString();
                 } else {
+                    // Whole numbers in the General format read the same as their long value, without a formatter
+                    double number = cell.getNumericCellValue();
+                    if (cell.getCellStyle().getDataFormat() == 0 && number == Math.rint(number) && Math.abs(number) < 1e15) {
+                        return Long.toString((long) number);
+                    }
+
                     // Use DataFormatter to get the formatted string value exactly as it appears in Excel
-                    DataFormatter formatter = new DataFormatter();
-                    String value = formatter.formatCellValue(cell);
+                    String value = cellFormatter.get().formatCellValue(cell);
 
                     // If the value contains 'E' (scientific notation), convert it to plain number
                     if (value.contains("E")) {
@@ -434,20 +380,38 @@ public class CreateIsoMessage {
     }
 
     public static void generateIsoFromSpreadsheet(String filePath) throws IOException {
+        generateIsoFromSpreadsheet(filePath, RESUME_RUNS);
+    }
+
+    /**
+     * Generates, sends and validates the ISO message of every spreadsheet row, writing the results back to the workbook.
+     * Each completed row is also appended to a checkpoint journal next to the workbook, which is removed once the
+     * workbook has been saved.
+     * @param filePath The workbook to process and update
+     * @param resume True to skip the rows recorded in the journal of an earlier, unfinished run and merge them into the output
+     */
+    public static void generateIsoFromSpreadsheet(String filePath, boolean resume) throws IOException {
         System.out.println("\n=== Starting ISO message generation and validation from spreadsheet ===");
         System.out.println("File: " + filePath);
 
         // Clear previous results before starting new run
-        validationResults.clear();
+        startResults();
 
         // Load the ISO configuration
         loadConfig("iso_config.json");
 
+        Path journalPath = IsoRunJournal.pathFor(filePath);
+        Map<Integer, IsoRunJournal.Entry> checkpoints = loadCheckpoints(journalPath, resume);
+
         // Open the Excel workbook
         try (FileInputStream fis = new FileInputStream(filePath);
-             Workbook workbook = new XSSFWorkbook(fis)) {
+             Workbook workbook = new XSSFWorkbook(fis);
+             IsoRunJournal journal = IsoRunJournal.open(journalPath, configSnapshot.getFingerprint(), !checkpoints.isEmpty())) {
 
-            Sheet sheet = workbook.getSheetAt(4);
+            Sheet sheet = workbook.getSheet(IsoSpreadsheetWriter.SHEET_NAME);
+            if (sheet == null) {
+                sheet = workbook.getSheetAt(4);
+            }
             String sheetName = sheet.getSheetName();
             System.out.println("Found worksheet: " + sheetName);
 
@@ -474,235 +438,756 @@ public class CreateIsoMessage {
             Cell de39HeaderCell = headerRow.createCell(91); // Column CN
             de39HeaderCell.setCellValue("DE39 Response Code");
 
-            // Process each row starting from row 6
-            for (int rowIndex = 5; rowIndex <= totalRows; rowIndex++) {
-                Row dataRow = sheet.getRow(rowIndex);
-                if (dataRow == null) {
-                    System.out.println("\nSkipping empty row " + (rowIndex + 1));
-                    continue;
+            // Rows are built, sent and validated on worker threads in chunks of CANONICAL_BATCH_SIZE;
+            // results come back to this thread in row order, which alone writes to the workbook
+            SheetColumn[] columns = describeColumns(readHeaderKeys(headerRow));
+            try (IsoRowEngine<List<RowInput>, List<RowOutcome>> engine = new IsoRowEngine<>(ROW_WORKERS,
+                    CreateIsoMessage::processRows,
+                    outcomes -> outcomes.forEach(outcome -> writeRowOutcome(workbook, outcome.input.dataRow, outcome, journal)))) {
+                List<RowInput> chunk = new ArrayList<>(CANONICAL_BATCH_SIZE);
+
+                // Process each row starting from row 6
+                for (int rowIndex = 5; rowIndex <= totalRows; rowIndex++) {
+                    Row dataRow = sheet.getRow(rowIndex);
+                    RowInput input = readRowInput(columns, dataRow != null ? readCellValues(dataRow, columns) : null, rowIndex, dataRow);
+                    input.checkpoint = checkpoints.get(rowIndex);
+                    chunk.add(input);
+                    if (chunk.size() >= CANONICAL_BATCH_SIZE) {
+                        engine.submit(chunk);
+                        chunk = new ArrayList<>(CANONICAL_BATCH_SIZE);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    engine.submit(chunk);
                 }
+                engine.finish();
+            }
 
-                System.out.println("\n=== Processing Row " + (rowIndex + 1) + " ===");
+            // Save the workbook and print aggregate results
+            try (FileOutputStream fos = new FileOutputStream(filePath)) {
+                workbook.write(fos);
+                System.out.println("\nSuccessfully wrote all ISO messages and validation results to spreadsheet");
 
-                // Clear previous field data for new row
-                isoFields.clear();
-                manuallyUpdatedFields.clear();
-                resetBitmaps(); // Reset bitmaps for each new row
+                // Print total validation results
+                System.out.println("\n" + getTotalValidationSummary());
+            }
+            journal.delete();
+        } catch (Exception e) {
+            System.err.println("\nError processing spreadsheet: " + e.getMessage());
+            e.printStackTrace();
+            printResumeHint(journalPath);
+            throw new IOException("Failed to process spreadsheet: " + e.getMessage(), e);
+        } finally {
+            aggregatedResults.close();
+        }
+    }
 
-                int processedFields = 0;
+    /**
+     * Same as generateIsoFromSpreadsheet, but for workbooks too large to open in memory: the input is read
+     * row by row through the SAX event API and the rows, with their results, are written through SXSSF to
+     * a separate output workbook, so only a window of rows is held at any time.
+     * Formula cells are read as their cached displayed value.
+     * @param filePath The input workbook, which is not modified
+     * @param outputPath The workbook to write the rows and results to
+     */
+    public static void generateIsoFromSpreadsheetStreaming(String filePath, String outputPath) throws IOException {
+        generateIsoFromSpreadsheetStreaming(filePath, outputPath, RESUME_RUNS);
+    }
 
-                // Start from Column B (index 1) and go to Column CK (index 88)
-                for (int colNum = 1; colNum <= 88; colNum++) {
-                    // Get the Data Element Key from Row 1
-                    Cell headerCell = headerRow.getCell(colNum);
-                    String dataElementKey = getCellValueAsString(headerCell).trim();
-                    if (dataElementKey.isEmpty()) {
-                        continue;
-                    }
+    /**
+     * Streamed form of generateIsoFromSpreadsheet(String, boolean); the checkpoint journal is kept next to the output
+     * @param filePath The input workbook, which is not modified
+     * @param outputPath The workbook to write the rows and results to
+     * @param resume True to skip the rows recorded in the journal of an earlier, unfinished run and merge them into the output
+     */
+    public static void generateIsoFromSpreadsheetStreaming(String filePath, String outputPath, boolean resume) throws IOException {
+        System.out.println("\n=== Starting streamed ISO message generation and validation from spreadsheet ===");
+        streamRows(filePath, outputPath, resume, false, handler -> {
+            String sheetName = IsoSheetStreamReader.read(filePath, IsoSpreadsheetWriter.SHEET_NAME, 4, (rowIndex, values) -> {
+                // DE 11 is zero-padded when it comes from a number, as getCellValueAsString does for formulas
+                if (rowIndex >= IsoSpreadsheetWriter.FIRST_DATA_ROW && values.length > 10 && values[10] != null && values[10].matches("\\d{1,5}")) {
+                    values[10] = String.format("%06d", Integer.parseInt(values[10]));
+                }
+                handler.row(rowIndex, values);
+            });
+            System.out.println("Found worksheet: " + sheetName);
+        });
+    }
 
-                    // Get the data from current row
-                    Cell dataCell = dataRow.getCell(colNum);
-                    String cellValue;
+    public static void generateIsoFromTestCases(String testCasePath, String outputPath) throws IOException {
+        generateIsoFromTestCases(testCasePath, outputPath, RESUME_RUNS);
+    }
 
-                    // Special handling for DE 60
-                    if (colNum == 58 || colNum == 60) {
-                        cellValue = getCellValueAsString(dataCell);
-                    } else {
-                        cellValue = getCellValueAsString(dataCell).trim();
-                    }
+    /**
+     * Same as generateIsoFromSpreadsheetStreaming, but reads the test cases from a CSV or columnar file keyed by
+     * DE number (see IsoTestCaseFile) instead of a workbook. Values are sent exactly as written in the file.
+     * @param testCasePath The .csv or columnar test case file
+     * @param outputPath The workbook to write the test cases and results to
+     * @param resume True to skip the rows recorded in the journal of an earlier, unfinished run and merge them into the output
+     */
+    public static void generateIsoFromTestCases(String testCasePath, String outputPath, boolean resume) throws IOException {
+        System.out.println("\n=== Starting ISO message generation and validation from test cases ===");
+        streamRows(testCasePath, outputPath, resume, true, handler -> IsoTestCaseFile.read(Path.of(testCasePath), handler));
+    }
 
-                    if (cellValue.isEmpty()) {
-                        continue;
+    /**
+     * Writes the test cases of the "Auth STIP Integration" sheet to a CSV or columnar file keyed by DE number, so
+     * later runs can use generateIsoFromTestCases and skip parsing the workbook
+     * @param filePath The workbook to convert
+     * @param outputPath The test case file to create; a .csv name selects the CSV layout
+     */
+    public static void convertSpreadsheetToTestCases(String filePath, String outputPath) throws IOException {
+        int[][] keyColumns = new int[1][];
+        IsoTestCaseFile.TestCaseWriter[] writer = new IsoTestCaseFile.TestCaseWriter[1];
+        long[] converted = new long[1];
+        try {
+            String sheetName = IsoSheetStreamReader.read(filePath, IsoSpreadsheetWriter.SHEET_NAME, 4, (rowIndex, values) -> {
+                if (rowIndex == 0) {
+                    List<Integer> columns = new ArrayList<>();
+                    List<String> keys = new ArrayList<>();
+                    // Start from Column B (index 1) and go to Column CK (index 88)
+                    for (int colNum = 1; colNum <= 88 && colNum < values.length; colNum++) {
+                        if (values[colNum] != null && !values[colNum].trim().isEmpty()) {
+                            columns.add(colNum);
+                            keys.add(values[colNum].trim());
+                        }
                     }
+                    keyColumns[0] = columns.stream().mapToInt(Integer::intValue).toArray();
+                    writer[0] = IsoTestCaseFile.create(Path.of(outputPath), keys.toArray(new String[0]));
+                    return;
+                }
+                if (rowIndex < IsoSpreadsheetWriter.FIRST_DATA_ROW) {
+                    return;
+                }
+                if (writer[0] == null) {
+                    throw new IOException("Header row (Row 1) not found in spreadsheet");
+                }
 
-                    // Determine the data type from the configuration
-                    String dataType = "String"; // Default type
-                    JsonNode config = fieldConfig.get(dataElementKey);
-                    if (config != null && config.has("type")) {
-                        dataType = config.get("type").asText();
+                // Store each value the way readRowInput would send it
+                String[] testCase = new String[keyColumns[0].length];
+                boolean hasValue = false;
+                for (int i = 0; i < testCase.length; i++) {
+                    int colNum = keyColumns[0][i];
+                    String value = colNum < values.length && values[colNum] != null ? values[colNum] : "";
+                    if (colNum == 10 && value.matches("\\d{1,5}")) {
+                        value = String.format("%06d", Integer.parseInt(value));
                     }
+                    testCase[i] = colNum == 58 || colNum == 60 ? value : value.trim();
+                    hasValue |= !testCase[i].isEmpty();
+                }
+                if (hasValue) {
+                    writer[0].write(rowIndex, testCase);
+                    converted[0]++;
+                }
+            });
+            System.out.println("Converted " + converted[0] + " test cases from worksheet " + sheetName + " to " + outputPath);
+        } finally {
+            if (writer[0] != null) {
+                writer[0].close();
+            }
+        }
+    }
 
-                    try {
-                        // Get the field name from configuration
-                        String fieldName;
-                        if (config != null && config.has("name")) {
-                            fieldName = config.get("name").asText();
-                        } else {
-                            System.out.println(" Warning: No field name found in configuration for key " + dataElementKey);
-                            fieldName = "Field_" + dataElementKey; // Fallback
-                        }
+    /**
+     * Reads rows from a sheet-shaped source and runs them through the row engine, writing each input row and its
+     * results through SXSSF to a new workbook so only a window of rows is held at any time
+     * @param inputPath The file rows are read from, for the log
+     * @param outputPath The workbook to write the rows and results to
+     * @param resume True to skip the rows recorded in the journal of an earlier, unfinished run
+     * @param verbatim True when values are to be sent untrimmed
+     * @param source Hands the header as row 0, then the rows in increasing order
+     */
+    private static void streamRows(String inputPath, String outputPath, boolean resume, boolean verbatim, RowSource source) throws IOException {
+        System.out.println("File: " + inputPath);
+        System.out.println("Output: " + outputPath);
 
-                        // Apply the field update using the same logic as i_create_iso_message
-                        applyBddUpdate(fieldName, cellValue, dataType);
-                        processedFields++;
-                    } catch (Exception e) {
-                        System.out.println(" Status: Failed to process - " + e.getMessage());
-                    }
-                }
+        // Clear previous results before starting new run
+        startResults();
 
-                if (processedFields > 0) {
-                    System.out.println("\n=== Row " + (rowIndex + 1) + " Processing Summary ===");
-                    System.out.println("Total fields processed: " + processedFields);
-
-                    // Generate default fields and build ISO message
-                    generateDefaultFields();
-                    String isoMessage = buildIsoMessage();
-                    System.out.println("\nGenerated ISO Message for Row " + (rowIndex + 1) + ":");
-                    System.out.println(isoMessage);
-
-                    // Write the ISO message to the spreadsheet
-                    Cell messageCell = dataRow.createCell(89); // Column CL
-                    messageCell.setCellValue(isoMessage);
-
-                    try {
-                        WebSocketManager.init(WS_URL);
-                        WebSocketManager.sendMessage(isoMessage);
-                        String wsResponse = WebSocketClient.getResponseMessage();
-                        WebSocketManager.close();
-
-                        // Parse response to get DE39
-                        String parsedResponse = sendIsoMessageToParser(wsResponse);
-                        JsonNode responseArray = objectMapper.readTree(parsedResponse);
-
-                        // Extract DE39 (Response Code) from array
-                        String responseCode = null;
-                        if (responseArray.isArray()) {
-                            // Iterate through array indices
-                            for (int i = 0; i < responseArray.size(); i++) {
-                                JsonNode element = responseArray.get(i);
-                                String elementId = element.get("dataElementId").asText();
-                                if ("39".equals(elementId)) {
-                                    responseCode = element.get("value").asText();
-                                    System.out.println("Found DE39 with value: " + responseCode);
-                                    break;
-                                }
-                            }
-                        }
+        // Load the ISO configuration
+        loadConfig("iso_config.json");
 
-                        // Write response code to column CN
-                        Cell responseCell = dataRow.createCell(91); // Column CN
-                        if (responseCode != null) {
-                            JsonNode de39Config = fieldConfig.get("39");
-                            if (de39Config != null && de39Config.has("validation")) {
-                                JsonNode mapping = de39Config.get("validation").get("rules").get("mapping").get(responseCode);
-                                if (mapping != null) {
-                                    String description = mapping.get("description").asText();
-                                    String domain = mapping.get("domain").asText();
-                                    responseCell.setCellValue(String.format("%s - %s (%s)", responseCode, description, domain));
-                                } else {
-                                    responseCell.setCellValue(responseCode + " - Unknown response code");
-                                }
-                            } else {
-                                responseCell.setCellValue(responseCode);
-                            }
-                        } else {
-                            responseCell.setCellValue("No DE39 found in response");
+        Path journalPath = IsoRunJournal.pathFor(outputPath);
+        Map<Integer, IsoRunJournal.Entry> checkpoints = loadCheckpoints(journalPath, resume);
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(STREAM_ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try (IsoRunJournal journal = IsoRunJournal.open(journalPath, configSnapshot.getFingerprint(), !checkpoints.isEmpty())) {
+            Sheet sheet = workbook.createSheet(IsoSpreadsheetWriter.SHEET_NAME);
+            SheetColumn[][] columns = new SheetColumn[1][];
+            int[] nextRowIndex = {IsoSpreadsheetWriter.FIRST_DATA_ROW};
+
+            try (IsoRowEngine<List<RowInput>, List<RowOutcome>> engine = new IsoRowEngine<>(ROW_WORKERS,
+                    CreateIsoMessage::processRows,
+                    outcomes -> outcomes.forEach(outcome -> writeRowOutcome(workbook,
+                            copyRow(sheet, outcome.input.rowIndex, outcome.input.cellValues), outcome, journal)))) {
+                List<RowInput> chunk = new ArrayList<>(CANONICAL_BATCH_SIZE);
+
+                source.read((rowIndex, values) -> {
+                    if (rowIndex == 0) {
+                        if (verbatim && values.length > 89) {
+                            throw new IOException("At most 88 Data Element columns are supported, found " + (values.length - 1));
+                        }
+                        String[] headerKeys = new String[89];
+                        for (int colNum = 1; colNum <= 88; colNum++) {
+                            headerKeys[colNum] = colNum < values.length && values[colNum] != null ? values[colNum].trim() : "";
                         }
-                    } catch (Exception e) {
-                        System.out.println("\nWebSocket/Parser Error: " + e.getMessage());
-                        e.printStackTrace(); // Print full stack trace for debugging
-                        Cell responseCell = dataRow.createCell(92); // Column CN
-                        responseCell.setCellValue("Error: " + e.getMessage());
+                        columns[0] = describeColumns(headerKeys, verbatim);
+                        // Create headers for ISO Message and Validation Results
+                        Row headerRow = copyRow(sheet, 0, values);
+                        headerRow.createCell(89).setCellValue("Generated ISO Message"); // Column CL
+                        headerRow.createCell(90).setCellValue("Validation Results"); // Column CM
+                        headerRow.createCell(91).setCellValue("DE39 Response Code"); // Column CN
+                        return;
+                    }
+                    if (rowIndex < IsoSpreadsheetWriter.FIRST_DATA_ROW) {
+                        copyRow(sheet, rowIndex, values);
+                        return;
+                    }
+                    if (columns[0] == null) {
+                        throw new IOException("Header row (Row 1) not found in spreadsheet");
                     }
 
-                    try {
-                        // Set current row index
-                        currentRowIndex.set(rowIndex);
-                        
-                        // Validate against canonical form
-                        ValidationResult validationResult = validateIsoMessageCanonical(isoMessage, dataRow);
-                        validationResult.printResults();
-
-                        // Clear current row index
-                        currentRowIndex.remove();
-
-                        // Export validation results to Excel
-                        exportValidationResultsToExcel(workbook, validationResult, rowIndex);
-
-                        // Write validation results to the spreadsheet
-                        Cell validationCell = dataRow.createCell(90); // Column CM
-                        long passCount = validationResult.getResults().values().stream()
-                                .filter(r -> r.getStatus() == FieldStatus.PASSED)
-                                .count();
-                        long failCount = validationResult.getResults().values().stream()
-                                .filter(r -> r.getStatus() == FieldStatus.FAILED)
-                                .count();
-                        long skipCount = validationResult.getResults().values().stream()
-                                .filter(r -> r.getStatus() == FieldStatus.SKIPPED)
-                                .count();
-
-                        // Get failed and skipped DEs
-                        String failedDEs = validationResult.getResults().entrySet().stream()
-                                .filter(e -> e.getValue().getStatus() == FieldStatus.FAILED)
-                                .map(Map.Entry::getKey)
-                                .collect(Collectors.joining(", "));
-                        String skippedDEs = validationResult.getResults().entrySet().stream()
-                                .filter(e -> e.getValue().getStatus() == FieldStatus.SKIPPED)
-                                .map(Map.Entry::getKey)
-                                .collect(Collectors.joining(", "));
-
-                        String validationSummary = String.format(
-                                "Total Fields: %d, Passed: %d, Failed: %d%s, Skipped: %d%s",
-                                validationResult.getResults().size(),
-                                passCount,
-                                failCount,
-                                failCount > 0 ? " (DE " + failedDEs + ")" : "",
-                                skipCount,
-                                skipCount > 0 ? " (DE " + skippedDEs + ")" : ""
-                        );
-                        validationCell.setCellValue(validationSummary);
-                        
-                        // Store the row summary
-                        rowValidationSummaries.put(rowIndex + 1, new RowValidationSummary(
-                            rowIndex + 1,
-                            validationResult.getResults().size(),
-                            passCount,
-                            failCount,
-                            skipCount,
-                            failedDEs,
-                            skippedDEs
-                        ));
-
-                        // Store the result for aggregation
-                        ValidationResult newResult = new ValidationResult();
-                        Map<? extends String, ? extends ValidationResultManager.FieldResult> sourceMap = validationResult.getResults();
-                        for (String key : sourceMap.keySet()) {
-                            ValidationResultManager.FieldResult fieldResult = sourceMap.get(key);
-                            switch (fieldResult.getStatus()) {
-                                case PASSED:
-                                    newResult.addPassedField(key, fieldResult.getExpected(), fieldResult.getActual());
-                                    break;
-                                case FAILED:
-                                    newResult.addFailedField(key, fieldResult.getExpected(), fieldResult.getActual());
-                                    break;
-                                case SKIPPED:
-                                    newResult.addSkippedField(key, fieldResult.getExpected(), fieldResult.getActual());
-                                    break;
-                            }
+                    // Rows with no cells are not reported by the reader; keep them in the log like the in-memory path
+                    while (nextRowIndex[0] <= rowIndex) {
+                        int index = nextRowIndex[0]++;
+                        RowInput input = readRowInput(columns[0], index == rowIndex ? values : null, index, null);
+                        input.checkpoint = checkpoints.get(index);
+                        chunk.add(input);
+                        if (chunk.size() >= CANONICAL_BATCH_SIZE) {
+                            engine.submit(new ArrayList<>(chunk));
+                            chunk.clear();
                         }
-                        validationResults.put(rowIndex + 1, newResult);
-                    } catch (Exception e) {
-                        System.out.println("\nValidation failed: " + e.getMessage());
-                        Cell validationCell = dataRow.createCell(90); // Column CM
-                        validationCell.setCellValue("Validation Error: " + e.getMessage());
                     }
-                } else {
-                    System.out.println("\nNo fields processed for Row " + (rowIndex + 1) + " - skipping ISO message generation");
+                });
+
+                if (!chunk.isEmpty()) {
+                    engine.submit(chunk);
                 }
+                engine.finish();
             }
 
             // Save the workbook and print aggregate results
-            try (FileOutputStream fos = new FileOutputStream(filePath)) {
+            try (FileOutputStream fos = new FileOutputStream(outputPath)) {
                 workbook.write(fos);
-                System.out.println("\nSuccessfully wrote all ISO messages and validation results to spreadsheet");
+                System.out.println("\nSuccessfully wrote all ISO messages and validation results to " + outputPath);
 
                 // Print total validation results
                 System.out.println("\n" + getTotalValidationSummary());
             }
+            journal.delete();
         } catch (Exception e) {
             System.err.println("\nError processing spreadsheet: " + e.getMessage());
             e.printStackTrace();
+            printResumeHint(journalPath);
             throw new IOException("Failed to process spreadsheet: " + e.getMessage(), e);
+        } finally {
+            aggregatedResults.close();
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * A source of sheet-shaped rows for streamRows
+     */
+    private interface RowSource {
+        void read(IsoSheetStreamReader.RowHandler handler) throws IOException;
+    }
+
+    /**
+     * Reads the rows completed by an earlier run when resuming
+     */
+    private static Map<Integer, IsoRunJournal.Entry> loadCheckpoints(Path journalPath, boolean resume) throws IOException {
+        if (!resume) {
+            return Collections.emptyMap();
+        }
+        Map<Integer, IsoRunJournal.Entry> checkpoints = IsoRunJournal.load(journalPath, configSnapshot.getFingerprint());
+        System.out.println("Resuming: " + checkpoints.size() + " completed rows found in " + journalPath);
+        return checkpoints;
+    }
+
+    private static void printResumeHint(Path journalPath) {
+        if (Files.exists(journalPath)) {
+            System.err.println("Completed rows are kept in " + journalPath + "; run again with -Diso.resume=true to continue from them");
+        }
+    }
+
+    /**
+     * Writes a streamed input row to the output sheet so the results sit next to the values they came from
+     */
+    private static Row copyRow(Sheet sheet, int rowIndex, String[] values) {
+        Row row = sheet.createRow(rowIndex);
+        if (values != null) {
+            for (int colNum = 0; colNum < values.length; colNum++) {
+                if (values[colNum] != null) {
+                    row.createCell(colNum).setCellValue(values[colNum]);
+                }
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Reads the Data Element Keys from Row 1, columns B to CK
+     */
+    private static String[] readHeaderKeys(Row headerRow) {
+        String[] headerKeys = new String[89];
+        for (int colNum = 1; colNum <= 88; colNum++) {
+            headerKeys[colNum] = getCellValueAsString(headerRow.getCell(colNum)).trim();
+        }
+        return headerKeys;
+    }
+
+    /**
+     * Resolves each Data Element Key column to its field name and type once per sheet
+     * @param headerKeys The Data Element Keys by column
+     * @return The columns that have a key, in column order
+     */
+    private static SheetColumn[] describeColumns(String[] headerKeys) {
+        return describeColumns(headerKeys, false);
+    }
+
+    /**
+     * @param headerKeys The Data Element Keys by column
+     * @param verbatim True when every value is already exactly as it should be sent, as in test case files
+     * @return The columns that have a key, in column order
+     */
+    private static SheetColumn[] describeColumns(String[] headerKeys, boolean verbatim) {
+        List<SheetColumn> columns = new ArrayList<>();
+        // Start from Column B (index 1) and go to Column CK (index 88)
+        for (int colNum = 1; colNum <= 88 && colNum < headerKeys.length; colNum++) {
+            String dataElementKey = headerKeys[colNum] != null ? headerKeys[colNum] : "";
+            if (dataElementKey.isEmpty()) {
+                continue;
+            }
+
+            // Determine the data type from the configuration
+            String dataType = "String"; // Default type
+            JsonNode config = fieldConfig.get(dataElementKey);
+            if (config != null && config.has("type")) {
+                dataType = config.get("type").asText();
+            }
+
+            // Get the field name from configuration
+            String fieldName;
+            if (config != null && config.has("name")) {
+                fieldName = config.get("name").asText();
+            } else {
+                System.out.println("Warning: No field name found in configuration for key " + dataElementKey);
+                fieldName = "Field_" + dataElementKey; // Fallback
+            }
+
+            // Special handling for DE 60: keep leading and trailing spaces
+            columns.add(new SheetColumn(colNum, dataElementKey, fieldName, dataType, verbatim || colNum == 58 || colNum == 60));
+        }
+        return columns.toArray(new SheetColumn[0]);
+    }
+
+    /**
+     * Reads the untrimmed text of the described columns of a data row, each cell once
+     */
+    private static String[] readCellValues(Row dataRow, SheetColumn[] columns) {
+        String[] cellValues = new String[89];
+        for (SheetColumn column : columns) {
+            cellValues[column.index] = getCellValueAsString(dataRow.getCell(column.index));
+        }
+        return cellValues;
+    }
+
+    /**
+     * Prepares everything a worker needs from a spreadsheet row, so that only the reading thread touches the workbook
+     * @param columns The described Data Element Key columns
+     * @param cellValues The row's cell text by column, or null for an empty row
+     * @param rowIndex The 0-based row number
+     * @param dataRow The row in the workbook being updated, or null when results go to a separate file
+     */
+    private static RowInput readRowInput(SheetColumn[] columns, String[] cellValues, int rowIndex, Row dataRow) {
+        RowInput input = new RowInput(rowIndex, cellValues, dataRow);
+        if (cellValues == null) {
+            return input;
+        }
+
+        Map<String, String> expectedValues = new HashMap<>();
+        for (SheetColumn column : columns) {
+            String rawValue = column.index < cellValues.length && cellValues[column.index] != null ? cellValues[column.index] : "";
+            String cellValue = column.keepWhitespace ? rawValue : rawValue.trim();
+            if (cellValue.isEmpty()) {
+                continue;
+            }
+
+            // Expected values for validation are always trimmed
+            String expectedValue = column.keepWhitespace ? rawValue.trim() : cellValue;
+            if (!expectedValue.isEmpty()) {
+                expectedValues.put(column.key, expectedValue);
+            }
+            input.updates.add(new String[]{column.fieldName, cellValue, column.dataType});
+        }
+
+        input.expectedValues = expectedValues;
+        return input;
+    }
+
+    /**
+     * Builds, sends and validates a chunk of rows on a worker thread.
+     * All the chunk's messages are pipelined over the WebSocket session and converted to canonical form in one batch request.
+     */
+    private static List<RowOutcome> processRows(List<RowInput> inputs) {
+        // The chunk's messages are encoded one after another into this thread's buffer, reused for every chunk
+        IsoMessageEncoder.threadBuffer();
+        List<RowOutcome> outcomes = new ArrayList<>(inputs.size());
+        List<RowOutcome> generated = new ArrayList<>(inputs.size());
+        for (RowInput input : inputs) {
+            RowOutcome outcome = generateRow(input);
+            outcomes.add(outcome);
+            if (outcome.isoMessage != null && !outcome.restored) {
+                generated.add(outcome);
+            }
+        }
+        if (generated.isEmpty()) {
+            return outcomes;
+        }
+
+        sendToWebSocket(generated);
+
+        List<String> isoMessages = new ArrayList<>(generated.size());
+        List<ByteBuffer> encoded = new ArrayList<>(generated.size());
+        generated.forEach(outcome -> {
+            isoMessages.add(outcome.isoMessage);
+            encoded.add(outcome.encoded);
+        });
+        List<String> canonicalResponses;
+        try {
+            // Blocks until every request is answered, so the buffer is free for the next chunk
+            canonicalResponses = sendIsoMessagesToCanonical(isoMessages, encoded);
+        } catch (IOException e) {
+            generated.forEach(outcome -> outcome.validationError = e.getMessage());
+            return outcomes;
+        }
+
+        for (int i = 0; i < generated.size(); i++) {
+            RowOutcome outcome = generated.get(i);
+            // Special case validators read the row's fields, so put them back before validating
+            isoFields().clear();
+            isoFields().putAll(outcome.fields);
+            try {
+                outcome.validationResult = validateCanonicalResponse(canonicalResponses.get(i), outcome.input.expectedValues);
+            } catch (Exception e) {
+                outcome.validationError = e.getMessage();
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * Builds the ISO message for one row using this thread's field state
+     */
+    private static RowOutcome generateRow(RowInput input) {
+        RowOutcome outcome = new RowOutcome(input);
+        StringBuilder log = outcome.log;
+        IsoRunJournal.Entry checkpoint = input.checkpoint;
+        if (checkpoint != null) {
+            log.append("\nRow ").append(input.rowIndex + 1).append(" restored from checkpoint journal\n");
+            outcome.restored = true;
+            outcome.isoMessage = checkpoint.isoMessage;
+            outcome.responseColumn = checkpoint.responseColumn;
+            outcome.responseText = checkpoint.responseText;
+            outcome.validationResult = checkpoint.validationResult;
+            return outcome;
+        }
+        if (input.cellValues == null) {
+            log.append("\nSkipping empty row ").append(input.rowIndex + 1).append('\n');
+            return outcome;
+        }
+
+        log.append("\n=== Processing Row ").append(input.rowIndex + 1).append(" ===\n");
+
+        // Clear previous field data for new row
+        isoFields().clear();
+        manuallyUpdatedFields().clear();
+        resetBitmaps(); // Reset bitmaps for each new row
+
+        int processedFields = 0;
+        for (String[] update : input.updates) {
+            try {
+                // Apply the field update using the same logic as i_create_iso_message
+                applyBddUpdate(update[0], update[1], update[2]);
+                processedFields++;
+            } catch (Exception e) {
+                log.append(" Status: Failed to process - ").append(e.getMessage()).append('\n');
+            }
+        }
+
+        if (processedFields == 0) {
+            log.append("\nNo fields processed for Row ").append(input.rowIndex + 1).append(" - skipping ISO message generation\n");
+            return outcome;
+        }
+
+        log.append("\n=== Row ").append(input.rowIndex + 1).append(" Processing Summary ===\n");
+        log.append("Total fields processed: ").append(processedFields).append('\n');
+
+        // Generate default fields and build ISO message
+        generateDefaultFields();
+        outcome.isoMessage = buildIsoMessage();
+        outcome.encoded = IsoMessageEncoder.encodeNext(isoFields().getOrDefault(0, DEFAULT_MTI), currentBitmap(), isoFields(), fieldPlan);
+        outcome.fields = new TreeMap<>(isoFields());
+        log.append("\nGenerated ISO Message for Row ").append(input.rowIndex + 1).append(":\n");
+        log.append(outcome.isoMessage).append('\n');
+        return outcome;
+    }
+
+    /**
+     * Sends the rows' messages over the shared WebSocket session and records the DE39 response code of each
+     */
+    private static void sendToWebSocket(List<RowOutcome> outcomes) {
+        List<CompletableFuture<String>> responses = new ArrayList<>(outcomes.size());
+        for (RowOutcome outcome : outcomes) {
+            try {
+                responses.add(sendWebSocketMessageAsync(outcome.isoMessage));
+            } catch (Exception e) {
+                responses.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        for (int i = 0; i < outcomes.size(); i++) {
+            RowOutcome outcome = outcomes.get(i);
+            try {
+                String wsResponse;
+                try {
+                    wsResponse = responses.get(i).get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+
+                // Parse response locally to get DE39 (Response Code)
+                String responseCode = IsoMessageParser.view(wsResponse, fieldPlan).get(39);
+                if (responseCode != null) {
+                    outcome.log.append("Found DE39 with value: ").append(responseCode).append('\n');
+                }
+
+                // Write response code to column CN
+                outcome.responseColumn = 91;
+                if (responseCode != null) {
+                    JsonNode de39Config = fieldConfig.get("39");
+                    if (de39Config != null && de39Config.has("validation")) {
+                        JsonNode mapping = de39Config.get("validation").get("rules").get("mapping").get(responseCode);
+                        if (mapping != null) {
+                            String description = mapping.get("description").asText();
+                            String domain = mapping.get("domain").asText();
+                            outcome.responseText = String.format("%s - %s (%s)", responseCode, description, domain);
+                        } else {
+                            outcome.responseText = responseCode + " - Unknown response code";
+                        }
+                    } else {
+                        outcome.responseText = responseCode;
+                    }
+                } else {
+                    outcome.responseText = "No DE39 found in response";
+                }
+            } catch (Exception e) {
+                // Keep the stack trace with the row's log so it prints in row order, not interleaved by workers
+                StringWriter trace = new StringWriter();
+                e.printStackTrace(new PrintWriter(trace));
+                outcome.log.append("\nWebSocket/Parser Error: ").append(e.getMessage()).append('\n').append(trace);
+                outcome.responseColumn = 92;
+                outcome.responseText = "Error: " + e.getMessage();
+            }
+        }
+    }
+
+    /**
+     * Writes one row's results to the spreadsheet; only called on the thread that owns the workbook
+     * @param workbook The workbook receiving the results
+     * @param dataRow The row to write the result columns to
+     * @param outcome The row's results
+     * @param journal Receives the row once it has completed, or null
+     */
+    private static void writeRowOutcome(Workbook workbook, Row dataRow, RowOutcome outcome, IsoRunJournal journal) {
+        System.out.print(outcome.log);
+        if (outcome.isoMessage == null) {
+            return;
+        }
+
+        int rowIndex = outcome.input.rowIndex;
+
+        // Write the ISO message to the spreadsheet
+        Cell messageCell = dataRow.createCell(89); // Column CL
+        messageCell.setCellValue(outcome.isoMessage);
+        if (outcome.responseText != null) {
+            dataRow.createCell(outcome.responseColumn).setCellValue(outcome.responseText);
+        }
+
+        // Rows whose validation failed are not journaled, so a resumed run validates them again
+        if (outcome.validationError != null) {
+            System.out.println("\nValidation failed: " + outcome.validationError);
+            Cell validationCell = dataRow.createCell(90); // Column CM
+            validationCell.setCellValue("Validation Error: " + outcome.validationError);
+            return;
+        }
+
+        ValidationResult validationResult = outcome.validationResult;
+        try {
+
+            if (!outcome.restored) {
+                // Set current row index
+                currentRowIndex.set(rowIndex);
+                validationResult.printResults();
+
+                // Clear current row index
+                currentRowIndex.remove();
+            }
+
+            // Export validation results to Excel
+            exportValidationResultsToExcel(workbook, validationResult, rowIndex);
+
+            // Write validation results to the spreadsheet
+            Cell validationCell = dataRow.createCell(90); // Column CM
+            long passCount = validationResult.getResults().values().stream()
+                    .filter(r -> r.getStatus() == FieldStatus.PASSED)
+                    .count();
+            long failCount = validationResult.getResults().values().stream()
+                    .filter(r -> r.getStatus() == FieldStatus.FAILED)
+                    .count();
+            long skipCount = validationResult.getResults().values().stream()
+                    .filter(r -> r.getStatus() == FieldStatus.SKIPPED)
+                    .count();
+
+            // Get failed and skipped DEs
+            String failedDEs = validationResult.getResults().entrySet().stream()
+                    .filter(e -> e.getValue().getStatus() == FieldStatus.FAILED)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.joining(", "));
+            String skippedDEs = validationResult.getResults().entrySet().stream()
+                    .filter(e -> e.getValue().getStatus() == FieldStatus.SKIPPED)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.joining(", "));
+
+            String validationSummary = String.format(
+                    "Total Fields: %d, Passed: %d, Failed: %d%s, Skipped: %d%s",
+                    validationResult.getResults().size(),
+                    passCount,
+                    failCount,
+                    failCount > 0 ? " (DE " + failedDEs + ")" : "",
+                    skipCount,
+                    skipCount > 0 ? " (DE " + skippedDEs + ")" : ""
+            );
+            validationCell.setCellValue(validationSummary);
+            
+            // Fold the row into the run totals
+            aggregatedResults.addRow(rowIndex + 1, validationResult);
+        } catch (Exception e) {
+            System.out.println("\nValidation failed: " + e.getMessage());
+            Cell validationCell = dataRow.createCell(90); // Column CM
+            validationCell.setCellValue("Validation Error: " + e.getMessage());
+            return;
+        }
+
+        // Rows whose WebSocket send failed are left out of the journal so a resumed run sends them again
+        if (journal != null && !outcome.restored && outcome.responseColumn != 92) {
+            try {
+                journal.record(new IsoRunJournal.Entry(rowIndex, outcome.isoMessage, outcome.responseColumn,
+                        outcome.responseText, validationResult));
+            } catch (IOException e) {
+                System.out.println("Warning: Row " + (rowIndex + 1) + " could not be written to the checkpoint journal: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A Data Element Key column of the sheet with its configured field name and type
+     */
+    private static final class SheetColumn {
+        final int index;
+        final String key;
+        final String fieldName;
+        final String dataType;
+        final boolean keepWhitespace;
+
+        SheetColumn(int index, String key, String fieldName, String dataType, boolean keepWhitespace) {
+            this.index = index;
+            this.key = key;
+            this.fieldName = fieldName;
+            this.dataType = dataType;
+            this.keepWhitespace = keepWhitespace;
+        }
+    }
+
+    /**
+     * What a worker needs to build and validate one spreadsheet row, read up front by the workbook thread
+     */
+    private static final class RowInput {
+        final int rowIndex;
+        final String[] cellValues;
+        final Row dataRow;
+        IsoRunJournal.Entry checkpoint; // Set when an earlier run already completed the row
+        final List<String[]> updates = new ArrayList<>(); // field name, value, data type
+        Map<String, String> expectedValues = Collections.emptyMap();
+
+        RowInput(int rowIndex, String[] cellValues, Row dataRow) {
+            this.rowIndex = rowIndex;
+            this.cellValues = cellValues;
+            this.dataRow = dataRow;
+        }
+    }
+
+    /**
+     * The results of one row, handed back to the workbook thread for writing
+     */
+    private static final class RowOutcome {
+        final RowInput input;
+        final StringBuilder log = new StringBuilder();
+        String isoMessage;
+        ByteBuffer encoded;
+        Map<Integer, String> fields;
+        int responseColumn;
+        String responseText;
+        ValidationResult validationResult;
+        String validationError;
+        boolean restored;
+
+        RowOutcome(RowInput input) {
+            this.input = input;
+        }
+    }
+
+    /**
+     * Decodes a single ISO message into a new spreadsheet using the DE column layout
+     * read by generateIsoFromSpreadsheet
+     * @param isoMessage The raw ISO message
+     * @param filePath The workbook to create
+     */
+    public static void generateSpreadsheetFromIso(String isoMessage, String filePath) throws IOException {
+        loadConfig("iso_config.json");
+
+        try (IsoSpreadsheetWriter writer = new IsoSpreadsheetWriter(filePath, fieldPlan)) {
+            writer.write(isoMessage.trim());
+            if (writer.getRowsFailed() > 0) {
+                System.out.println("Warning: ISO message could not be decoded, see the Decode Status column");
+            }
+        }
+        System.out.println("Wrote decoded ISO message to " + filePath);
+    }
+
+    /**
+     * Decodes a file of raw ISO messages, one per line, into a new spreadsheet.
+     * Lines are read and rows written as a stream, so the file can hold millions of messages.
+     * @param messagesPath The file holding the raw messages
+     * @param filePath The workbook to create
+     */
+    public static void generateSpreadsheetFromIsoFile(String messagesPath, String filePath) throws IOException {
+        loadConfig("iso_config.json");
+
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(messagesPath), StandardCharsets.ISO_8859_1);
+             IsoSpreadsheetWriter writer = new IsoSpreadsheetWriter(filePath, fieldPlan)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    writer.write(line);
+                }
+            }
+            System.out.println("Decoded " + writer.getRowsWritten() + " ISO messages ("
+                    + writer.getRowsFailed() + " failed) into " + filePath);
         }
     }
 
@@ -712,16 +1197,7 @@ public class CreateIsoMessage {
      * @return List of canonical paths for this DE
      */
     static List<String> getCanonicalPaths(String de) {
-        JsonNode config = fieldConfig.get(de);
-        if (config != null && config.has("canonical")) {
-            List<String> paths = new ArrayList<>();
-            JsonNode canonical = config.get("canonical");
-            if (canonical.isArray()) {
-                canonical.forEach(path -> paths.add(path.asText()));
-            }
-            return paths;
-        }
-        return Collections.emptyList();
+        return configSnapshot.getPathSelector().getPaths(de);
     }
 
     /**
@@ -731,17 +1207,36 @@ public class CreateIsoMessage {
      * @return ValidationResult containing pass/fail details
      */
     public static ValidationResult validateIsoMessageCanonical(String isoMessage, Row excelRow) throws IOException {
-        ValidationResult result = new ValidationResult();
-        result.clear(); // Ensure we start with a clean result
+        return validateCanonicalResponse(sendIsoMessageToCanonical(isoMessage), excelRow);
+    }
 
-        // Get canonical response
-        String canonicalResponse = sendIsoMessageToCanonical(isoMessage);
+    /**
+     * Validates an already converted canonical response against the expected values
+     * @param canonicalResponse The canonical JSON for the ISO message
+     * @param excelRow The row containing expected values
+     * @return ValidationResult containing pass/fail details
+     */
+    public static ValidationResult validateCanonicalResponse(String canonicalResponse, Row excelRow) throws IOException {
+        return validateCanonicalResponse(canonicalResponse, extractDEValuesFromExcel(excelRow));
+    }
 
-        // Parse the canonical response once
-        JsonNode canonicalJson = objectMapper.readTree(canonicalResponse);
+    /**
+     * Validates an already converted canonical response against expected values read from a row beforehand
+     * @param canonicalResponse The canonical JSON for the ISO message
+     * @param deValues The expected values keyed by DE
+     * @return ValidationResult containing pass/fail details
+     */
+    static ValidationResult validateCanonicalResponse(String canonicalResponse, Map<String, String> deValues) throws IOException {
+        ValidationResult result = new ValidationResult();
+        result.clear(); // Ensure we start with a clean result
 
-        // Extract values from Excel row
-        Map<String, String> deValues = extractDEValuesFromExcel(excelRow);
+        // Collect every configured canonical path in one pass. The full tree is only built if a
+        // DE validator needs it, and then parsed once and shared with every validator.
+        CanonicalResponse canonical = new CanonicalResponse(canonicalResponse);
+        CanonicalExtractor extractor = configSnapshot.getExtractor();
+        CanonicalExtractor.Values canonicalValues = needsCanonicalTree(deValues.keySet())
+                ? extractor.extract(canonical.getJson())
+                : extractor.extract(canonicalResponse);
 
         // Validate each field
         for (Map.Entry<String, String> entry : deValues.entrySet()) {
@@ -756,72 +1251,36 @@ public class CreateIsoMessage {
 
             // Special handling for DE 43 (Merchant Location)
             if (de.equals("43")) {
-                validateMerchantLocation(de, expectedValue, canonicalJson, result);
+                validateMerchantLocation(de, expectedValue, canonical.getJson(), result);
                 continue;
             }
 
             // Special handling for DE 95 (Replacement Amounts) when MTI is not 0420
-            if (de.equals("95") && !isoFields.getOrDefault(0, "").equals("0420")) {
-                result.addSkippedField(de, expectedValue, "DE 95 is not applicable for MTI " + isoFields.get(0));
+            if (de.equals("95") && !isoFields().getOrDefault(0, "").equals("0420")) {
+                result.addSkippedField(de, expectedValue, "DE 95 is not applicable for MTI " + isoFields().get(0));
                 continue;
             }
 
-            // Special handling for DE 60 (Advice/Reversal Reason Code)
-            if (de.equals("60")) {
-                String typeIndicator = expectedValue.substring(0, 2);
-                List<String> canonicalPaths = getCanonicalPaths(de);
-
-                // For reversal (80), only keep the reversalReason path
-                if ("80".equals(typeIndicator)) {
-                    canonicalPaths.removeIf(path -> path.contains("adviceReason"));
-                }
-                // For advice (40), only keep the adviceReason path
-                else if ("40".equals(typeIndicator)) {
-                    canonicalPaths.removeIf(path -> path.contains("reversalReason"));
-                }
-
-                // Update the config with filtered paths
-                JsonNode config = fieldConfig.get(de);
-                ((ObjectNode) config).put("canonical", objectMapper.valueToTree(canonicalPaths));
-            }
-
-            // Special handling for DE 111 (Additional Data)
-            if (de.equals("111")) {
-                String formatIdentifier = expectedValue.substring(0, 2);
-                List<String> canonicalPaths = getCanonicalPaths(de);
-                JsonNode config = fieldConfig.get(de);
-                JsonNode formatRules = config.path("validation").path("rules").path("formatIdentifiers").path(formatIdentifier);
-
-                if (!formatRules.isMissingNode() && formatRules.has("paths")) {
-                    // Keep only the paths defined for this format
-                    List<String> formatPaths = new ArrayList<>();
-                    formatRules.get("paths").forEach(node -> formatPaths.add(node.asText()));
-                    canonicalPaths.removeIf(path -> !formatPaths.contains(path));
-
-                    // Update the config with filtered paths
-                    ((ObjectNode) config).put("canonical", objectMapper.valueToTree(canonicalPaths));
-                }
-            }
-
-            List<String> canonicalPaths = getCanonicalPaths(de);
+            // DE 60 (Advice/Reversal Reason Code) and DE 111 (Additional Data) check only the paths
+            // for this message's type indicator / format identifier
+            List<String> canonicalPaths = configSnapshot.getPathSelector().select(de, expectedValue);
             if (!canonicalPaths.isEmpty()) {
                 boolean allPathsValid = true;
                 StringBuilder validationDetails = new StringBuilder();
 
                 for (String jsonPath : canonicalPaths) {
                     // Skip comments or placeholder paths
-                    if (jsonPath.contains("-->") || jsonPath.startsWith("Tag :") ||
-                            jsonPath.contains("Need to discuss") || jsonPath.contains("not canonicalize")) {
+                    if (CanonicalExtractor.isPlaceholder(jsonPath)) {
                         continue;
                     }
 
-                    JsonNode actualNode = getValueFromJsonPath(canonicalJson, jsonPath.trim());
+                    JsonNode actualNode = canonicalValues.get(jsonPath.trim());
                     if (actualNode != null) {
                         String actualValue = actualNode.asText();
 
                         // For special validation cases, pass the entire canonical response
                         if (hasSpecialValidation(de)) {
-                            allPathsValid &= validateSpecialCase(de, expectedValue, canonicalResponse, result, fieldConfig);
+                            allPathsValid &= validateSpecialCase(de, expectedValue, canonical, result);
                         } else {
                             if (!expectedValue.equals(actualValue)) {
                                 allPathsValid = false;
@@ -852,7 +1311,7 @@ public class CreateIsoMessage {
                         result.addPassedField(de, expectedValue, "All paths validated successfully");
                     } else {
                         // For single path, just show the actual value
-                        JsonNode actualNode = getValueFromJsonPath(canonicalJson, canonicalPaths.get(0).trim());
+                        JsonNode actualNode = canonicalValues.get(canonicalPaths.get(0).trim());
                         String actualValue = actualNode != null ? actualNode.asText() : "";
                         // Let the formatCanonicalValue method handle the formatting
                         result.addPassedField(de, expectedValue, actualValue);
@@ -868,6 +1327,18 @@ public class CreateIsoMessage {
         return result;
     }
 
+    /**
+     * Checks whether any of the DEs is validated against the whole canonical tree rather than extracted paths
+     */
+    private static boolean needsCanonicalTree(Set<String> des) {
+        for (String de : des) {
+            if (de.equals("43") || (hasSpecialValidation(de) && !isNonCanonicalized(de))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Check if a DE requires special validation
      */
@@ -898,7 +1369,7 @@ public class CreateIsoMessage {
                 JsonNode rules = validation.get("rules");
                 if (rules != null && rules.has("mti") && rules.get("mti").has("required")) {
                     String requiredMti = rules.get("mti").get("required").asText();
-                    return !requiredMti.equals(isoFields.get(0));
+                    return !requiredMti.equals(isoFields().get(0));
                 }
             }
         }
@@ -931,30 +1402,7 @@ public class CreateIsoMessage {
      */
     private static String getJsonValue(JsonNode node, String path) {
         try {
-            String[] parts = path.split("\\.");
-            JsonNode current = node;
-            for (String part : parts) {
-                // Try exact match first
-                JsonNode next = current.path(part);
-                if (next.isMissingNode()) {
-                    // If not found, try case-insensitive match
-                    Iterator<String> fieldNames = current.fieldNames();
-                    boolean found = false;
-                    while (fieldNames.hasNext()) {
-                        String fieldName = fieldNames.next();
-                        if (fieldName.equalsIgnoreCase(part)) {
-                            next = current.path(fieldName);
-                            found = true;
-                            break;
-                        }
-                    }
-                    if (!found) {
-                        return ""; // Path not found
-                    }
-                }
-                current = next;
-            }
-            return current.isNull() ? "" : current.asText().trim();
+            return CanonicalPath.compile(path).getText(node);
         } catch (Exception e) {
             System.out.println("Warning: Error getting JSON value for path " + path + ": " + e.getMessage());
             return "";
@@ -966,19 +1414,10 @@ public class CreateIsoMessage {
      */
     private static Map<String, String> extractDEValuesFromExcel(Row row) {
         Map<String, String> deValues = new HashMap<>();
-        Row headerRow = row.getSheet().getRow(0);
-
-        for (int colNum = 1; colNum <= 88; colNum++) {
-            Cell headerCell = headerRow.getCell(colNum);
-            Cell dataCell = row.getCell(colNum);
-
-            if (headerCell != null && dataCell != null) {
-                String de = getCellValueAsString(headerCell).trim();
-                String value = getCellValueAsString(dataCell).trim();
-
-                if (!de.isEmpty() && !value.isEmpty()) {
-                    deValues.put(de, value);
-                }
+        for (SheetColumn column : describeHeaderRow(row.getSheet().getRow(0))) {
+            String value = getCellValueAsString(row.getCell(column.index)).trim();
+            if (!value.isEmpty()) {
+                deValues.put(column.key, value);
             }
         }
 
@@ -986,40 +1425,15 @@ public class CreateIsoMessage {
     }
 
     /**
-     * Gets a value from a JSON node using a dot-notation path
+     * Gets the column table of a header row, reusing the last one while the row and config are unchanged
      */
-    private static JsonNode getValueFromJsonPath(JsonNode rootNode, String path) {
-        String[] parts = path.split("\\.");
-        JsonNode current = rootNode;
-
-        for (String part : parts) {
-            // Handle array access notation [n]
-            if (part.contains("[") && part.contains("]")) {
-                String fieldName = part.substring(0, part.indexOf("["));
-                String indexStr = part.substring(part.indexOf("[") + 1, part.indexOf("]"));
-                int index = Integer.parseInt(indexStr);
-
-                // Get the array field first
-                current = current.path(fieldName);
-                if (current.isMissingNode()) {
-                    return null;
-                }
-
-                // Then access the array element
-                if (current.isArray() && current.size() > index) {
-                    current = current.get(index);
-                } else {
-                    return null;
-                }
-            } else {
-                current = current.path(part);
-                if (current.isMissingNode()) {
-                    return null;
-                }
-            }
+    private static synchronized SheetColumn[] describeHeaderRow(Row headerRow) {
+        if (headerRow != describedHeaderRow || fieldConfig != describedFieldConfig) {
+            describedColumns = describeColumns(readHeaderKeys(headerRow));
+            describedHeaderRow = headerRow;
+            describedFieldConfig = fieldConfig;
         }
-
-        return current;
+        return describedColumns;
     }
 
     /**
@@ -1027,11 +1441,10 @@ public class CreateIsoMessage {
      * @return Aggregated validation results summary as a string
      */
     public static String getAggregatedResults() {
-        if (validationResults.isEmpty()) {
+        if (aggregatedResults.getTotalMessages() == 0) {
             return "No validation results available. Please process a spreadsheet first.";
         }
-        AggregatedResults aggregated = ValidationResultManager.aggregateResults(validationResults);
-        return aggregated.getSummary();
+        return aggregatedResults.getSummary();
     }
 
     /**
@@ -1039,16 +1452,14 @@ public class CreateIsoMessage {
      * @return AggregatedResults object containing all validation details
      */
     public static AggregatedResults getDetailedResults() {
-        if (validationResults.isEmpty()) {
-            return new AggregatedResults(0, 0);
-        }
-        return ValidationResultManager.aggregateResults(validationResults);
+        return aggregatedResults;
     }
 
     /**
      * Clears all stored validation results
      */
     public static void clearResults() {
-        validationResults.clear();
+        aggregatedResults.close();
+        aggregatedResults = new AggregatedResults();
     }
 }
\ No newline at end of file
@@ -1,84 +1,29 @@
 package utilities;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
 import static utilities.CreateIsoMessage.*;
+import static utilities.DeValidationRules.*;
+import static utilities.ValidationResultManager.*;
 
 public class DataElementSpecialCaseValidator {
-    private static final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
-     * Handles special validation cases for specific DEs based on config
+     * Handles special validation cases for specific DEs using the validators compiled at config load.
+     * The canonical response is parsed once by the caller and shared by every DE check.
      */
-    static boolean validateSpecialCase(String de, String expected, String actual, ValidationResult result, Map<String, JsonNode> fieldConfig) {
-        JsonNode config = fieldConfig.get(de);
-        if (config != null && config.has("validation")) {
-            JsonNode validation = config.get("validation");
-            if (validation.has("type")) {
-                String validationType = validation.get("type").asText();
-                switch (validationType) {
-                    case "amount":
-                        return validateAmount(de, expected, actual, result, validation.get("rules"));
-                    case "datetime":
-                        try {
-                            JsonNode actualJson = objectMapper.readTree(actual);
-                            String actualValue = getJsonValue(actualJson, getCanonicalPaths(de).get(0));
-                            return validateDateTime(de, expected, actualValue, result, validation.get("format"));
-                        } catch (Exception e) {
-                            result.addFailedField(de, expected, "Failed to parse datetime from canonical response: " + e.getMessage());
-                            return false;
-                        }
-                    case "currency":
-                        return validateCurrency(de, expected, actual, result, validation.get("format"));
-                    case "merchant_location":
-                        try {
-                            JsonNode actualJson = objectMapper.readTree(actual);
-                            return validateMerchantLocation(de, expected, actualJson, result);
-                        } catch (Exception e) {
-                            result.addFailedField(de, expected, "Failed to parse canonical response: " + e.getMessage());
-                            return false;
-                        }
-                    case "pos_entry_mode":
-                        return validatePosEntryMode(de, expected, actual, result);
-                    case "original_data":
-                        return validateOriginalData(de, expected, actual, result, validation.get("rules"));
-                    case "pos_condition_code":
-                        return validatePosConditionCode(de, expected, actual, result, validation.get("rules"));
-                    case "additional_fees":
-                        return validateAdditionalFees(de, expected, actual, result, validation.get("rules"));
-                    case "additional_amounts":
-                        return validateAdditionalAmounts(de, expected, actual, result, validation.get("rules"));
-                    case "national_pos_geographic_data":
-                        return validateNationalPosGeographicData(de, expected, actual, result, validation.get("rules"));
-                    case "network_data":
-                        return validateNetworkData(de, expected, actual, result, validation.get("rules"));
-                    case "avs_data":
-                        return validateAvsData(de, expected, actual, result, validation.get("rules"));
-                    case "acquirer_trace_data":
-                        return validateAcquirerTraceData(de, expected, actual, result, validation.get("rules"));
-                    case "issuer_trace_data":
-                        return validateIssuerTraceData(de, expected, actual, result, validation.get("rules"));
-                    case "incremental_auth_data":
-                        return validateIncrementalAuthData(de, expected, actual, result, validation.get("rules"));
-                    case "advice_reversal_code":
-                        return validateAdviceReversalCode(de, expected, actual, result, validation.get("rules"));
-                    case "replacement_amounts":
-                        return validateReplacementAmounts(de, expected, actual, result, validation.get("rules"));
-                    case "additional_data":
-                        return validateAdditionalData(de, expected, actual, result, fieldConfig);
-                    default:
-                        System.out.println("Unknown validation type: " + validationType);
-                }
-            } else {
-                System.out.println("No validation type found for DE " + de);
-            }
-        } else {
-            System.out.println("No validation config found for DE " + de);
+    static boolean validateSpecialCase(String de, String expected, CanonicalResponse canonical, ValidationResult result) {
+        DeValidator validator = deValidators.get(de);
+        if (validator != null) {
+            return validator.validate(de, expected, canonical, result);
         }
 
         // Default comparison for fields without special validation
+        String actual = canonical.getRaw();
         if (expected.equals(actual)) {
             result.addPassedField(de, expected, actual);
             return true;
@@ -87,35 +32,103 @@ public class DataElementSpecialCaseValidator {
         return false;
     }
 
-    private static boolean validateIncrementalAuthData(String de, String expected, String actual, ValidationResult result, JsonNode rules) {
+    /**
+     * Gets the factories for the validation types built into this class
+     */
+    static List<DeValidatorFactory> builtInFactories() {
+        return Arrays.asList(
+                withRules("amount", "rules", rules -> mapping(rules.path("debitCreditIndicator")),
+                        DataElementSpecialCaseValidator::validateAmount),
+                builtIn("datetime", (validation, fieldConfig) -> {
+                    PairedField pairedField = PairedField.parse(validation.path("format"));
+                    return (de, expected, canonical, result) -> {
+                        String actualValue;
+                        try {
+                            actualValue = getJsonValue(canonical.getJson(), getCanonicalPaths(de).get(0));
+                        } catch (Exception e) {
+                            result.addFailedField(de, expected, "Failed to parse datetime from canonical response: " + e.getMessage());
+                            return false;
+                        }
+                        return validateDateTime(de, expected, actualValue, result, pairedField);
+                    };
+                }),
+                builtIn("currency", (validation, fieldConfig) -> DataElementSpecialCaseValidator::validateCurrency),
+                builtIn("merchant_location", (validation, fieldConfig) -> (de, expected, canonical, result) -> {
+                    try {
+                        return validateMerchantLocation(de, expected, canonical.getJson(), result);
+                    } catch (Exception e) {
+                        result.addFailedField(de, expected, "Failed to parse canonical response: " + e.getMessage());
+                        return false;
+                    }
+                }),
+                builtIn("pos_entry_mode", (validation, fieldConfig) -> DataElementSpecialCaseValidator::validatePosEntryMode),
+                withRules("original_data", "rules", PositionRules::parse, DataElementSpecialCaseValidator::validateOriginalData),
+                withRules("pos_condition_code", "rules", PositionRules::parse, DataElementSpecialCaseValidator::validatePosConditionCode),
+                withRules("additional_fees", "rules", PositionRules::parse, DataElementSpecialCaseValidator::validateAdditionalFees),
+                withRules("additional_amounts", "rules", PositionRules::parse, DataElementSpecialCaseValidator::validateAdditionalAmounts),
+                builtIn("national_pos_geographic_data", (validation, fieldConfig) -> DataElementSpecialCaseValidator::validateNationalPosGeographicData),
+                builtIn("network_data", (validation, fieldConfig) -> DataElementSpecialCaseValidator::validateNetworkData),
+                builtIn("avs_data", (validation, fieldConfig) -> DataElementSpecialCaseValidator::validateAvsData),
+                builtIn("acquirer_trace_data", (validation, fieldConfig) -> DataElementSpecialCaseValidator::validateAcquirerTraceData),
+                builtIn("issuer_trace_data", (validation, fieldConfig) -> DataElementSpecialCaseValidator::validateIssuerTraceData),
+                withRules("incremental_auth_data", "rules", IncrementalAuthRules::parse, DataElementSpecialCaseValidator::validateIncrementalAuthData),
+                withRules("advice_reversal_code", "rules", ReasonCodes::parse, DataElementSpecialCaseValidator::validateAdviceReversalCode),
+                withRules("replacement_amounts", "rules", PositionRules::parse, DataElementSpecialCaseValidator::validateReplacementAmounts),
+                withRules("additional_data", "rules", AdditionalDataFormat::parseAll, DataElementSpecialCaseValidator::validateAdditionalData)
+        );
+    }
+
+    /**
+     * Shape shared by the validators that take a block of their config entry
+     */
+    private interface ConfiguredCheck<R> {
+        boolean validate(String de, String expected, CanonicalResponse canonical, ValidationResult result, R rules);
+    }
+
+    /**
+     * Creates a factory that parses one block of the validation config ("rules" or "format") into its
+     * typed form once per DE, so rows never look the block up in the JSON tree
+     */
+    private static <R> DeValidatorFactory withRules(String type, String block, Function<JsonNode, R> parser, ConfiguredCheck<R> check) {
+        return builtIn(type, (validation, fieldConfig) -> {
+            R rules = parser.apply(validation.path(block));
+            return (de, expected, canonical, result) -> check.validate(de, expected, canonical, result, rules);
+        });
+    }
+
+    private static DeValidatorFactory builtIn(String type, BiFunction<JsonNode, Map<String, JsonNode>, DeValidator> creator) {
+        return new DeValidatorFactory() {
+            @Override
+            public String getType() {
+                return type;
+            }
+
+            @Override
+            public DeValidator create(String de, JsonNode validation, Map<String, JsonNode> fieldConfig) {
+                return creator.apply(validation, fieldConfig);
+            }
+        };
+    }
+
+    private static boolean validateIncrementalAuthData(String de, String expected, CanonicalResponse canonical, ValidationResult result, IncrementalAuthRules rules) {
         try {
             // Only validate for MTI 0220, skip otherwise
-            if (!"0220".equals(isoFields.get(0))) {
+            if (!"0220".equals(isoFields().get(0))) {
                 result.addSkippedField(de, expected, "DE " + de + " validation only applicable for MTI 0220");
                 return true;
             }
 
             // Check MTI requirement from configuration
-            if (rules.has("mti") && rules.get("mti").has("required")) {
-                String requiredMti = rules.get("mti").get("required").asText();
-                String skipReason = rules.get("mti").has("skipReason") ?
-                        rules.get("mti").get("skipReason").asText() :
-                        "DE " + de + " validation only applicable for MTI " + requiredMti;
-
-                // Safely get MTI value with null check
-                String currentMti = isoFields.get(0);
-                if (!requiredMti.equals(currentMti)) {
-                    result.addSkippedField(de, expected, skipReason);
-                    return true;
-                }
+            if (rules.mti != null && rules.mti.skip(de, expected, result)) {
+                return true;
             }
 
-            if (expected == null || actual == null || expected.length() != 12) {
+            if (expected == null || canonical == null || expected.length() != 12) {
                 result.addFailedField(de, String.valueOf(expected), "Invalid incremental authorization data length");
                 return true;
             }
 
-            JsonNode actualJson = objectMapper.readTree(actual);
+            JsonNode actualJson = canonical.getJson();
             StringBuilder details = new StringBuilder();
             boolean allValid = true;
 
@@ -150,10 +163,7 @@ public class DataElementSpecialCaseValidator {
 
             // Validate authorization type (always MULTIPLE_COMPLETION)
             String actualAuthType = getJsonValue(actualJson, "transaction.incrementalAuthorization.incrementalAuthorizationType");
-            String expectedAuthType = rules.get("authorizationType")
-                    .get("mapping")
-                    .get("default")
-                    .asText();
+            String expectedAuthType = rules.authorizationType;
             if (!String.valueOf(expectedAuthType).equals(actualAuthType)) {
                 details.append("Authorization type mismatch: expected ").append(expectedAuthType)
                         .append(", got ").append(actualAuthType);
@@ -161,9 +171,9 @@ public class DataElementSpecialCaseValidator {
             }
 
             if (allValid) {
-                result.addPassedField(de, expected, actual);
+                result.addPassedField(de, expected, canonical.getRaw());
             } else {
-                result.addFailedField(de, expected, actual + " [" + details + "]");
+                result.addFailedField(de, expected, canonical.getRaw() + " [" + details + "]");
             }
 
             return true;
@@ -173,14 +183,14 @@ public class DataElementSpecialCaseValidator {
         }
     }
 
-    private static boolean validateNetworkData(String de, String expected, String actual, ValidationResult result, JsonNode rules) {
+    private static boolean validateNetworkData(String de, String expected, CanonicalResponse canonical, ValidationResult result) {
         try {
-            if (expected == null || actual == null) {
-                result.addFailedField(de, expected, actual);
+            if (expected == null || canonical == null) {
+                result.addFailedField(de, expected, canonical == null ? null : canonical.getRaw());
                 return true;
             }
 
-            JsonNode actualJson = objectMapper.readTree(actual);
+            JsonNode actualJson = canonical.getJson();
             StringBuilder details = new StringBuilder();
             boolean allValid = true;
 
@@ -242,9 +252,9 @@ public class DataElementSpecialCaseValidator {
             }
 
             if (allValid) {
-                result.addPassedField(de, expected, actual);
+                result.addPassedField(de, expected, canonical.getRaw());
             } else {
-                result.addFailedField(de, expected, actual + " [" + details + "]");
+                result.addFailedField(de, expected, canonical.getRaw() + " [" + details + "]");
             }
             return true;
         } catch (Exception e) {
@@ -256,10 +266,10 @@ public class DataElementSpecialCaseValidator {
     /**
      * Validates amount fields using config rules
      */
-    private static boolean validateAmount(String de, String expected, String actual, ValidationResult result, JsonNode rules) {
+    private static boolean validateAmount(String de, String expected, CanonicalResponse canonical, ValidationResult result, Map<String, String> debitCreditIndicators) {
         try {
             // Parse the canonical JSON response
-            JsonNode actualJson = objectMapper.readTree(actual);
+            JsonNode actualJson = canonical.getJson();
             String actualValue = getJsonValue(actualJson, getCanonicalPaths(de).get(0));
 
             // Remove leading zeros from expected value
@@ -281,9 +291,8 @@ public class DataElementSpecialCaseValidator {
             boolean amountMatches = normalizedExpected.equals(normalizedActual);
 
             // For DEs 28-31, also validate debit/credit indicator
-            if (amountMatches && !debitCreditIndicator.isEmpty() && rules.has("debitCreditIndicator")) {
-                String expectedIndicatorType = rules.get("debitCreditIndicator")
-                        .get(debitCreditIndicator).asText();
+            if (amountMatches && !debitCreditIndicator.isEmpty() && !debitCreditIndicators.isEmpty()) {
+                String expectedIndicatorType = debitCreditIndicators.get(debitCreditIndicator);
 
                 // Get the debitCreditIndicatorType from canonical response
                 String actualIndicatorType = getJsonValue(actualJson, getCanonicalPaths(de).get(1));
@@ -315,19 +324,15 @@ public class DataElementSpecialCaseValidator {
     /**
      * Validates datetime fields using config format
      */
-    private static boolean validateDateTime(String de, String expected, String actual, ValidationResult result, JsonNode format) {
+    private static boolean validateDateTime(String de, String expected, String actual, ValidationResult result, PairedField pairedField) {
         try {
-            String inputFormat = format.get("input").asText();
-            String canonicalFormat = format.get("canonical").asText();
-
             // Check if this field is part of a paired datetime
-            if (format.has("pairedField")) {
-                JsonNode paired = format.get("pairedField");
-                String otherField = paired.get("field").asText();
-                String fieldType = paired.get("type").asText();
+            if (pairedField != null) {
+                String otherField = pairedField.field;
+                String fieldType = pairedField.type;
 
                 // Get the other field's value from the ISO message
-                String otherValue = isoFields.get(Integer.parseInt(otherField));
+                String otherValue = isoFields().get(Integer.parseInt(otherField));
                 if (otherValue == null) {
                     result.addFailedField(de, expected, String.format("Paired field DE %s not found - both DE %s and DE %s are needed for datetime validation",
                             otherField, de, otherField));
@@ -420,10 +425,10 @@ public class DataElementSpecialCaseValidator {
     /**
      * Validates currency codes using config format
      */
-    private static boolean validateCurrency(String de, String expected, String actual, ValidationResult result, JsonNode format) {
+    private static boolean validateCurrency(String de, String expected, CanonicalResponse canonical, ValidationResult result) {
         try {
             // Parse the canonical JSON response
-            JsonNode actualJson = objectMapper.readTree(actual);
+            JsonNode actualJson = canonical.getJson();
             String actualValue = getJsonValue(actualJson, getCanonicalPaths(de).get(0));
 
             // For currency code, just compare the numeric values directly
@@ -489,30 +494,7 @@ public class DataElementSpecialCaseValidator {
      */
     private static String getJsonValue(JsonNode node, String path) {
         try {
-            String[] parts = path.split("\\.");
-            JsonNode current = node;
-            for (String part : parts) {
-                // Try exact match first
-                JsonNode next = current.path(part);
-                if (next.isMissingNode()) {
-                    // If not found, try case-insensitive match
-                    Iterator<String> fieldNames = current.fieldNames();
-                    boolean found = false;
-                    while (fieldNames.hasNext()) {
-                        String fieldName = fieldNames.next();
-                        if (fieldName.equalsIgnoreCase(part)) {
-                            next = current.path(fieldName);
-                            found = true;
-                            break;
-                        }
-                    }
-                    if (!found) {
-                        return ""; // Path not found
-                    }
-                }
-                current = next;
-            }
-            return current.isNull() ? "" : current.asText().trim();
+            return CanonicalPath.compile(path).getText(node);
         } catch (Exception e) {
             System.out.println("Warning: Error getting JSON value for path " + path + ": " + e.getMessage());
             return "";
@@ -522,9 +504,9 @@ public class DataElementSpecialCaseValidator {
     /**
      * Validates DE 22 (Point of Service Entry Mode) and maps to canonical values
      */
-    private static boolean validatePosEntryMode(String de, String expected, String actual, ValidationResult result) {
+    private static boolean validatePosEntryMode(String de, String expected, CanonicalResponse canonical, ValidationResult result) {
         try {
-            JsonNode actualJson = objectMapper.readTree(actual);
+            JsonNode actualJson = canonical.getJson();
             String actualValue = getJsonValue(actualJson, "transaction.channel.channelType");
 
             // Determine expected canonical value based on ISO value
@@ -562,16 +544,15 @@ public class DataElementSpecialCaseValidator {
     /**
      * Validates original data elements (DE 90) with position-based validation
      */
-    private static boolean validateOriginalData(String de, String expected, String actual, ValidationResult result, JsonNode rules) {
+    private static boolean validateOriginalData(String de, String expected, CanonicalResponse canonical, ValidationResult result, PositionRules positions) {
         try {
-            JsonNode actualJson = objectMapper.readTree(actual);
-            JsonNode positions = rules.get("positions");
+            JsonNode actualJson = canonical.getJson();
             boolean allValid = true;
             StringBuilder validationDetails = new StringBuilder();
 
             // Validate Message Type (positions 1-4)
             String messageType = expected.substring(0, 4);
-            String expectedType = positions.get("messageType").get("mapping").get(messageType).asText();
+            String expectedType = positions.get("messageType").decode(messageType);
             String actualType = getJsonValue(actualJson, "transaction.originalTransaction.transactionType");
             boolean messageTypeValid = expectedType.equals(actualType);
             validationDetails.append(String.format("Message Type: %s->%s (%s), ",
@@ -642,81 +623,63 @@ public class DataElementSpecialCaseValidator {
     /**
      * Validates POS condition code (DE 58) with position-based validation
      */
-    private static boolean validatePosConditionCode(String de, String expected, String actual, ValidationResult result, JsonNode rules) {
+    private static boolean validatePosConditionCode(String de, String expected, CanonicalResponse canonical, ValidationResult result, PositionRules positions) {
         try {
-            JsonNode actualJson = objectMapper.readTree(actual);
-            JsonNode positions = rules.get("positions");
+            JsonNode actualJson = canonical.getJson();
             boolean allValid = true;
             StringBuilder validationDetails = new StringBuilder();
 
             // Validate Terminal Class
-            JsonNode terminalClass = positions.get("terminalClass");
-            String terminalClassValue = expected.substring(
-                    terminalClass.get("start").asInt() - 1,
-                    terminalClass.get("end").asInt()
-            );
+            Segment terminalClass = positions.get("terminalClass");
+            String terminalClassValue = expected.substring(terminalClass.start - 1, terminalClass.end);
 
             // Validate each component using config mappings
-            JsonNode components = terminalClass.get("components");
-            for (Iterator<String> it = components.fieldNames(); it.hasNext();) {
-                String componentName = it.next();
-                JsonNode component = components.get(componentName);
+            for (Map.Entry<String, Segment> entry : terminalClass.getComponents().entrySet()) {
+                String componentName = entry.getKey();
+                Segment component = entry.getValue();
                 // Calculate position relative to the section start
-                int relativePosition = component.get("position").asInt() - terminalClass.get("start").asInt();
+                int relativePosition = component.position - terminalClass.start;
                 String value = terminalClassValue.substring(relativePosition, relativePosition + 1);
                 String canonicalPath = String.format("transaction.nationalPOSConditionCode.terminalClass.%s", componentName);
-                validateComponentWithMapping(component, value, actualJson, canonicalPath,
-                        componentName, validationDetails, allValid, createMappingFromJson(component.get("mapping")));
+                validateComponentWithMapping(value, actualJson, canonicalPath,
+                        componentName, validationDetails, allValid, component.getMapping());
             }
 
             // Validate Presentation Type
-            JsonNode presentationType = positions.get("presentationType");
-            String presentationValue = expected.substring(
-                    presentationType.get("start").asInt() - 1,
-                    presentationType.get("end").asInt()
-            );
-
-            components = presentationType.get("components");
-            for (Iterator<String> it = components.fieldNames(); it.hasNext();) {
-                String componentName = it.next();
-                JsonNode component = components.get(componentName);
+            Segment presentationType = positions.get("presentationType");
+            String presentationValue = expected.substring(presentationType.start - 1, presentationType.end);
+
+            for (Map.Entry<String, Segment> entry : presentationType.getComponents().entrySet()) {
+                String componentName = entry.getKey();
+                Segment component = entry.getValue();
                 // Calculate position relative to the section start
-                int relativePosition = component.get("position").asInt() - presentationType.get("start").asInt();
+                int relativePosition = component.position - presentationType.start;
                 String value = presentationValue.substring(relativePosition, relativePosition + 1);
                 String canonicalPath = String.format("transaction.nationalPOSConditionCode.presentationType.%s", componentName);
-                validateComponentWithMapping(component, value, actualJson, canonicalPath,
-                        componentName, validationDetails, allValid, createMappingFromJson(component.get("mapping")));
+                validateComponentWithMapping(value, actualJson, canonicalPath,
+                        componentName, validationDetails, allValid, component.getMapping());
             }
 
             // Validate Security Condition
-            JsonNode securityCondition = positions.get("securityCondition");
-            String securityValue = expected.substring(
-                    securityCondition.get("position").asInt() - 1,
-                    securityCondition.get("position").asInt()
-            );
-            validateComponentWithMapping(securityCondition, securityValue, actualJson,
+            Segment securityCondition = positions.get("securityCondition");
+            String securityValue = expected.substring(securityCondition.position - 1, securityCondition.position);
+            validateComponentWithMapping(securityValue, actualJson,
                     "transaction.nationalPOSConditionCode.SecurityCondition", "Security",
-                    validationDetails, allValid, createMappingFromJson(securityCondition.get("mapping")));
+                    validationDetails, allValid, securityCondition.getMapping());
 
             // Validate Terminal Type
-            JsonNode terminalType = positions.get("terminalType");
-            String terminalTypeValue = expected.substring(
-                    terminalType.get("start").asInt() - 1,
-                    terminalType.get("end").asInt()
-            );
-            validateComponentWithMapping(terminalType, terminalTypeValue, actualJson,
+            Segment terminalType = positions.get("terminalType");
+            String terminalTypeValue = expected.substring(terminalType.start - 1, terminalType.end);
+            validateComponentWithMapping(terminalTypeValue, actualJson,
                     "transaction.nationalPOSConditionCode.terminalType", "TerminalType",
-                    validationDetails, allValid, createMappingFromJson(terminalType.get("mapping")));
+                    validationDetails, allValid, terminalType.getMapping());
 
             // Validate Card Data Input Capability
-            JsonNode cardDataInput = positions.get("cardDataInputCapability");
-            String cardDataValue = expected.substring(
-                    cardDataInput.get("position").asInt() - 1,
-                    cardDataInput.get("position").asInt()
-            );
-            validateComponentWithMapping(cardDataInput, cardDataValue, actualJson,
+            Segment cardDataInput = positions.get("cardDataInputCapability");
+            String cardDataValue = expected.substring(cardDataInput.position - 1, cardDataInput.position);
+            validateComponentWithMapping(cardDataValue, actualJson,
                     "transaction.nationalPOSConditionCode.cardDataInputCapability", "InputCapability",
-                    validationDetails, allValid, createMappingFromJson(cardDataInput.get("mapping")));
+                    validationDetails, allValid, cardDataInput.getMapping());
 
             if (allValid) {
                 result.addPassedField(de, expected, validationDetails.toString());
@@ -732,20 +695,10 @@ public class DataElementSpecialCaseValidator {
         }
     }
 
-    private static Map<String, String> createMappingFromJson(JsonNode mappingNode) {
-        Map<String, String> mapping = new HashMap<>();
-        for (Iterator<String> it = mappingNode.fieldNames(); it.hasNext();) {
-            String key = it.next();
-            mapping.put(key, mappingNode.get(key).asText());
-        }
-        return mapping;
-    }
-
     /**
      * Helper method to validate a single component with enum mapping
      */
-    private static void validateComponentWithMapping(JsonNode component, String value,
-                                                     JsonNode actualJson, String canonicalPath, String componentName,
+    private static void validateComponentWithMapping(String value, JsonNode actualJson, String canonicalPath, String componentName,
                                                      StringBuilder details, boolean allValid, Map<String, String> mapping) {
         try {
             String actualValue = getJsonValue(actualJson, canonicalPath);
@@ -764,10 +717,9 @@ public class DataElementSpecialCaseValidator {
     /**
      * Validates DE 46 (Additional Fees) with position-based validation
      */
-    private static boolean validateAdditionalFees(String de, String expected, String actual, ValidationResult result, JsonNode rules) {
+    private static boolean validateAdditionalFees(String de, String expected, CanonicalResponse canonical, ValidationResult result, PositionRules positions) {
         try {
-            JsonNode actualJson = objectMapper.readTree(actual);
-            JsonNode positions = rules.get("positions");
+            JsonNode actualJson = canonical.getJson();
             boolean allValid = true;
             StringBuilder validationDetails = new StringBuilder();
 
@@ -781,7 +733,7 @@ public class DataElementSpecialCaseValidator {
 
             // Validate Fee Type (positions 1-2)
             String feeType = expected.substring(0, 2);
-            String expectedFeeType = positions.get("feeType").get("mapping").get(feeType).asText();
+            String expectedFeeType = positions.get("feeType").decode(feeType);
             String actualFeeType = fee.path("feeType").asText();
             boolean feeTypeValid = expectedFeeType.equals(actualFeeType);
             validationDetails.append(String.format("Fee Type: %s->%s (%s), ",
@@ -790,7 +742,7 @@ public class DataElementSpecialCaseValidator {
 
             // Validate Settlement Memo Indicator (position 3)
             String settleMemo = expected.substring(2, 3);
-            String expectedSettleMemo = positions.get("settleMemoIndicator").get("mapping").get(settleMemo).asText();
+            String expectedSettleMemo = positions.get("settleMemoIndicator").decode(settleMemo);
             String actualSettleMemo = fee.path("settleMemoIndicator").asText();
             boolean settleMemoValid = expectedSettleMemo.equals(actualSettleMemo);
             validationDetails.append(String.format("Settle Memo: %s->%s (%s), ",
@@ -799,7 +751,7 @@ public class DataElementSpecialCaseValidator {
 
             // Validate Decimalization Indicator (position 4)
             String decimalization = expected.substring(3, 4);
-            String expectedDecimalization = positions.get("decimalizationIndicator").get("mapping").get(decimalization).asText();
+            String expectedDecimalization = positions.get("decimalizationIndicator").decode(decimalization);
             String actualDecimalization = fee.path("decimalizationIndicator").asText();
             boolean decimalizationValid = expectedDecimalization.equals(actualDecimalization);
             validationDetails.append(String.format("Decimalization: %s (%s), ",
@@ -807,12 +759,12 @@ public class DataElementSpecialCaseValidator {
             allValid &= decimalizationValid;
 
             // Validate Fee Amount (positions 5-13)
-            JsonNode feeAmount = positions.get("feeAmount");
+            Segment feeAmount = positions.get("feeAmount");
             String feeAmountValue = expected.substring(4, 13);
 
             // Validate Debit/Credit Indicator (position 5)
             String feeIndicator = feeAmountValue.substring(0, 1);
-            String expectedFeeIndicator = feeAmount.get("components").get("debitCreditIndicator").get("mapping").get(feeIndicator).asText();
+            String expectedFeeIndicator = feeAmount.component("debitCreditIndicator").decode(feeIndicator);
             String actualFeeIndicator = fee.path("fee").path("amount").path("debitCreditIndicatorType").asText();
             boolean feeIndicatorValid = expectedFeeIndicator.equals(actualFeeIndicator);
             validationDetails.append(String.format("Fee Indicator: %s->%s (%s), ",
@@ -829,12 +781,12 @@ public class DataElementSpecialCaseValidator {
             allValid &= feeAmountValid;
 
             // Validate Settlement Amount (positions 14-22)
-            JsonNode settlementAmount = positions.get("settlementAmount");
+            Segment settlementAmount = positions.get("settlementAmount");
             String settlementValue = expected.substring(13, 22);
 
             // Validate Settlement Debit/Credit Indicator (position 14)
             String settlementIndicator = settlementValue.substring(0, 1);
-            String expectedSettlementIndicator = settlementAmount.get("components").get("debitCreditIndicator").get("mapping").get(settlementIndicator).asText();
+            String expectedSettlementIndicator = settlementAmount.component("debitCreditIndicator").decode(settlementIndicator);
             String actualSettlementIndicator = fee.path("settlement").path("settlementAmount").path("debitCreditIndicatorType").asText();
             boolean settlementIndicatorValid = expectedSettlementIndicator.equals(actualSettlementIndicator);
             validationDetails.append(String.format("Settlement Indicator: %s->%s (%s), ",
@@ -866,10 +818,9 @@ public class DataElementSpecialCaseValidator {
     /**
      * Validates DE 54 (Additional Amounts) with position-based validation
      */
-    private static boolean validateAdditionalAmounts(String de, String expected, String actual, ValidationResult result, JsonNode rules) {
+    private static boolean validateAdditionalAmounts(String de, String expected, CanonicalResponse canonical, ValidationResult result, PositionRules positions) {
         try {
-            JsonNode actualJson = objectMapper.readTree(actual);
-            JsonNode positions = rules.get("positions");
+            JsonNode actualJson = canonical.getJson();
             boolean allValid = true;
             StringBuilder validationDetails = new StringBuilder();
 
@@ -883,7 +834,7 @@ public class DataElementSpecialCaseValidator {
 
             // Validate Account Type (positions 1-2)
             String accountType = expected.substring(0, 2);
-            String expectedAccountType = positions.get("accountType").get("mapping").get(accountType).asText();
+            String expectedAccountType = positions.get("accountType").decode(accountType);
             String actualAccountType = amount.path("accountType").asText();
             boolean accountTypeValid = expectedAccountType.equals(actualAccountType);
             validationDetails.append(String.format("Account Type: %s->%s (%s), ",
@@ -892,7 +843,7 @@ public class DataElementSpecialCaseValidator {
 
             // Validate Amount Type (positions 3-4)
             String amountType = expected.substring(2, 4);
-            String expectedAmountType = positions.get("amountType").get("mapping").get(amountType).asText();
+            String expectedAmountType = positions.get("amountType").decode(amountType);
             String actualAmountType = amount.path("amountType").asText();
             boolean amountTypeValid = expectedAmountType.equals(actualAmountType);
             validationDetails.append(String.format("Amount Type: %s->%s (%s), ",
@@ -908,14 +859,13 @@ public class DataElementSpecialCaseValidator {
             allValid &= currencyCodeValid;
 
             // Validate Amount (positions 8-20)
-            JsonNode amountComponent = positions.get("amount");
+            Segment amountComponent = positions.get("amount");
 
             // Validate Debit/Credit Indicator (position 8)
             String indicator = expected.substring(7, 8);
-            JsonNode components = amountComponent.path("components");
-            JsonNode debitCreditIndicatorType = components.path("debitCreditIndicatorType");
-            JsonNode mapping = debitCreditIndicatorType.path("mapping");
-            String expectedIndicator = mapping.path(indicator).asText();
+            Segment debitCreditIndicatorType = amountComponent.getComponents().get("debitCreditIndicatorType");
+            String expectedIndicator = debitCreditIndicatorType != null
+                    ? debitCreditIndicatorType.getMapping().getOrDefault(indicator, "") : "";
             String actualIndicator = amount.path("amount").path("debitCreditIndicatorType").asText();
             boolean indicatorValid = expectedIndicator.equals(actualIndicator);
             validationDetails.append(String.format("D/C Indicator: %s->%s (%s), ",
@@ -947,10 +897,9 @@ public class DataElementSpecialCaseValidator {
     /**
      * Validates DE 59 (National POS Geographic Data) with position-based validation
      */
-    private static boolean validateNationalPosGeographicData(String de, String expected, String actual, ValidationResult result, JsonNode rules) {
+    private static boolean validateNationalPosGeographicData(String de, String expected, CanonicalResponse canonical, ValidationResult result) {
         try {
-            JsonNode actualJson = objectMapper.readTree(actual);
-            JsonNode positions = rules.get("positions");
+            JsonNode actualJson = canonical.getJson();
             boolean allValid = true;
             StringBuilder validationDetails = new StringBuilder();
 
@@ -1020,14 +969,14 @@ public class DataElementSpecialCaseValidator {
         return descriptions.getOrDefault(responseCode, "Unknown response code");
     }
 
-    private static boolean validateAvsData(String de, String expected, String actual, ValidationResult result, JsonNode rules) {
+    private static boolean validateAvsData(String de, String expected, CanonicalResponse canonical, ValidationResult result) {
         try {
-            if (expected == null || actual == null) {
-                result.addFailedField(de, expected, actual);
+            if (expected == null || canonical == null) {
+                result.addFailedField(de, expected, canonical == null ? null : canonical.getRaw());
                 return true;
             }
 
-            JsonNode actualJson = objectMapper.readTree(actual);
+            JsonNode actualJson = canonical.getJson();
             StringBuilder details = new StringBuilder();
             boolean allValid = true;
 
@@ -1045,7 +994,7 @@ public class DataElementSpecialCaseValidator {
                 zipLength = Integer.parseInt(zipLengthStr);
             } catch (NumberFormatException e) {
                 details.append("Invalid zip code length format: ").append(zipLengthStr).append("; ");
-                result.addFailedField(de, expected, actual + " [" + details + "]");
+                result.addFailedField(de, expected, canonical.getRaw() + " [" + details + "]");
                 return true;
             }
 
@@ -1060,9 +1009,9 @@ public class DataElementSpecialCaseValidator {
             }
 
             if (allValid) {
-                result.addPassedField(de, expected, actual);
+                result.addPassedField(de, expected, canonical.getRaw());
             } else {
-                result.addFailedField(de, expected, actual + " [" + details + "]");
+                result.addFailedField(de, expected, canonical.getRaw() + " [" + details + "]");
             }
 
             return true;
@@ -1072,14 +1021,14 @@ public class DataElementSpecialCaseValidator {
         }
     }
 
-    private static boolean validateAcquirerTraceData(String de, String expected, String actual, ValidationResult result, JsonNode rules) {
+    private static boolean validateAcquirerTraceData(String de, String expected, CanonicalResponse canonical, ValidationResult result) {
         try {
-            if (expected == null || actual == null || expected.length() < 93) {
+            if (expected == null || canonical == null || expected.length() < 93) {
                 result.addFailedField(de, expected, "Invalid acquirer trace data length");
                 return true;
             }
 
-            JsonNode actualJson = objectMapper.readTree(actual);
+            JsonNode actualJson = canonical.getJson();
             StringBuilder details = new StringBuilder();
             boolean allValid = true;
 
@@ -1170,9 +1119,9 @@ public class DataElementSpecialCaseValidator {
             }
 
             if (allValid) {
-                result.addPassedField(de, expected, actual);
+                result.addPassedField(de, expected, canonical.getRaw());
             } else {
-                result.addFailedField(de, expected, actual + " [" + details + "]");
+                result.addFailedField(de, expected, canonical.getRaw() + " [" + details + "]");
             }
 
             return true;
@@ -1282,14 +1231,14 @@ public class DataElementSpecialCaseValidator {
         }
     }
 
-    private static boolean validateIssuerTraceData(String de, String expected, String actual, ValidationResult result, JsonNode rules) {
+    private static boolean validateIssuerTraceData(String de, String expected, CanonicalResponse canonical, ValidationResult result) {
         try {
-            if (expected == null || actual == null || expected.length() < 52) {
+            if (expected == null || canonical == null || expected.length() < 52) {
                 result.addFailedField(de, expected, "Invalid issuer trace data length");
                 return true;
             }
 
-            JsonNode actualJson = objectMapper.readTree(actual);
+            JsonNode actualJson = canonical.getJson();
             StringBuilder details = new StringBuilder();
             boolean allValid = true;
 
@@ -1377,9 +1326,9 @@ public class DataElementSpecialCaseValidator {
             }
 
             if (allValid) {
-                result.addPassedField(de, expected, actual);
+                result.addPassedField(de, expected, canonical.getRaw());
             } else {
-                result.addFailedField(de, expected, actual + " [" + details + "]");
+                result.addFailedField(de, expected, canonical.getRaw() + " [" + details + "]");
             }
 
             return true;
@@ -1389,14 +1338,14 @@ public class DataElementSpecialCaseValidator {
         }
     }
 
-    private static boolean validateAdviceReversalCode(String de, String expected, String actual, ValidationResult result, JsonNode rules) {
+    private static boolean validateAdviceReversalCode(String de, String expected, CanonicalResponse canonical, ValidationResult result, ReasonCodes reasonCodes) {
         try {
-            if (expected == null || actual == null || expected.length() != 4) {
+            if (expected == null || canonical == null || expected.length() != 4) {
                 result.addFailedField(de, expected, "Invalid advice/reversal code length");
                 return false;
             }
 
-            JsonNode actualJson = objectMapper.readTree(actual);
+            JsonNode actualJson = canonical.getJson();
             StringBuilder details = new StringBuilder();
 
             // Get positions 1-2 to determine type (80=reversal, 40=advice)
@@ -1407,15 +1356,15 @@ public class DataElementSpecialCaseValidator {
             // Validate only the relevant path based on type
             if ("80".equals(typeIndicator)) {
                 // Only validate reversal path
-                JsonNode reversalReasons = rules.get("positions").get("reversalReasons");
+                Map<String, String> reversalReasons = reasonCodes.reversalReasons;
 
-                if (!reversalReasons.has(reasonCode)) {
+                if (!reversalReasons.containsKey(reasonCode)) {
                     details.append("Invalid reversal reason code: ").append(reasonCode);
                     result.addFailedField(de, expected, details.toString());
                     return false;
                 }
 
-                String expectedEnum = reversalReasons.get(reasonCode).asText();
+                String expectedEnum = reversalReasons.get(reasonCode);
                 String actualValue = getJsonValue(actualJson, "transaction.reversalReason");
 
                 if (actualValue == null) {
@@ -1437,15 +1386,15 @@ public class DataElementSpecialCaseValidator {
                 return true;
             } else if ("40".equals(typeIndicator)) {
                 // Only validate advice path
-                JsonNode adviceReasons = rules.get("positions").get("adviceReasons");
+                Map<String, String> adviceReasons = reasonCodes.adviceReasons;
 
-                if (!adviceReasons.has(reasonCode)) {
+                if (!adviceReasons.containsKey(reasonCode)) {
                     details.append("Invalid advice reason code: ").append(reasonCode);
                     result.addFailedField(de, expected, details.toString());
                     return false;
                 }
 
-                String expectedEnum = adviceReasons.get(reasonCode).asText();
+                String expectedEnum = adviceReasons.get(reasonCode);
                 String actualValue = getJsonValue(actualJson, "transaction.adviceReason");
 
                 if (actualValue == null) {
@@ -1477,34 +1426,22 @@ public class DataElementSpecialCaseValidator {
         }
     }
 
-    private static boolean validateReplacementAmounts(String de, String expected, String actual, ValidationResult result, JsonNode rules) {
+    private static boolean validateReplacementAmounts(String de, String expected, CanonicalResponse canonical, ValidationResult result, PositionRules positions) {
         try {
             // Check MTI requirement from configuration
-            if (rules.has("mti") && rules.get("mti").has("required")) {
-                String requiredMti = rules.get("mti").get("required").asText();
-                String skipReason = rules.get("mti").has("skipReason") ?
-                        rules.get("mti").get("skipReason").asText() :
-                        "DE " + de + " validation only applicable for MTI " + requiredMti;
-
-                // Safely get MTI value with null check
-                String currentMti = isoFields.get(0);
-                if (!requiredMti.equals(currentMti)) {
-                    result.addSkippedField(de, expected, skipReason);
-                    return true;
-                }
+            if (positions.mti != null && positions.mti.skip(de, expected, result)) {
+                return true;
             }
 
-            if (expected == null || actual == null || expected.length() != 42) {
+            if (expected == null || canonical == null || expected.length() != 42) {
                 result.addFailedField(de, expected, "Invalid replacement amounts length");
                 return false;
             }
 
-            JsonNode actualJson = objectMapper.readTree(actual);
+            JsonNode actualJson = canonical.getJson();
             StringBuilder details = new StringBuilder();
             boolean allValid = true;
 
-            JsonNode positions = rules.get("positions");
-
             // Validate Transaction Amount (positions 1-12)
             String transactionAmount = expected.substring(0, 12);
             String normalizedTransactionAmount = String.valueOf(Long.parseLong(transactionAmount)); // Remove leading zeros
@@ -1524,12 +1461,12 @@ public class DataElementSpecialCaseValidator {
             allValid &= settlementAmountValid;
 
             // Validate Transaction Fees (positions 24-33)
-            JsonNode transactionFees = positions.get("transactionFees");
+            Segment transactionFees = positions.get("transactionFees");
 
             // Validate Transaction Fees D/C Indicator (position 24)
             String transactionFeesIndicator = expected.substring(23, 24);
-            String expectedTransactionFeesIndicator = transactionFees.get("components")
-                    .get("debitCreditIndicator").get("mapping").get(transactionFeesIndicator).asText();
+            String expectedTransactionFeesIndicator = transactionFees.component("debitCreditIndicator")
+                    .decode(transactionFeesIndicator);
             String actualTransactionFeesIndicator = getJsonValue(actualJson,
                     "transaction.replacementAmount.transactionFees.transactionFees.debitCreditIndicatorType");
             boolean transactionFeesIndicatorValid = expectedTransactionFeesIndicator.equals(actualTransactionFeesIndicator);
@@ -1548,12 +1485,12 @@ public class DataElementSpecialCaseValidator {
             allValid &= transactionFeesAmountValid;
 
             // Validate Settlement Fees (positions 34-42)
-            JsonNode settlementFees = positions.get("settlementFees");
+            Segment settlementFees = positions.get("settlementFees");
 
             // Validate Settlement Fees D/C Indicator (position 34)
             String settlementFeesIndicator = expected.substring(33, 34);
-            String expectedSettlementFeesIndicator = settlementFees.get("components")
-                    .get("debitCreditIndicator").get("mapping").get(settlementFeesIndicator).asText();
+            String expectedSettlementFeesIndicator = settlementFees.component("debitCreditIndicator")
+                    .decode(settlementFeesIndicator);
             String actualSettlementFeesIndicator = getJsonValue(actualJson,
                     "transaction.replacementAmount.settlementFees.settlementFees.debitCreditIndicatorType");
             boolean settlementFeesIndicatorValid = expectedSettlementFeesIndicator.equals(actualSettlementFeesIndicator);
@@ -1589,19 +1526,19 @@ public class DataElementSpecialCaseValidator {
      *
      * @param de          The data element number (111)
      * @param expected    The expected DE 111 value
-     * @param actual      The actual canonical JSON response
+     * @param canonical   The parsed canonical response
      * @param result      The validation result object
-     * @param fieldConfig
+     * @param formats     The configured formats by identifier
      * @return true if validation passes, false otherwise
      */
-    private static boolean validateAdditionalData(String de, String expected, String actual, ValidationResult result, Map<String, JsonNode> fieldConfig) {
+    private static boolean validateAdditionalData(String de, String expected, CanonicalResponse canonical, ValidationResult result, Map<String, AdditionalDataFormat> formats) {
         try {
             if (expected == null || expected.length() < 14) { // Must have at least format identifier, length, and bitmap
                 result.addFailedField(de, expected, "Invalid DE 111 length");
                 return false;
             }
 
-            JsonNode actualJson = objectMapper.readTree(actual);
+            JsonNode actualJson = canonical.getJson();
             StringBuilder details = new StringBuilder();
             boolean allValid = true;
 
@@ -1615,43 +1552,34 @@ public class DataElementSpecialCaseValidator {
             }
 
             // Get config for format
-            JsonNode formatConfig = fieldConfig.get("111").get("validation").get("rules").get("formatIdentifiers").get(formatIdentifier);
+            AdditionalDataFormat formatConfig = formats.get(formatIdentifier);
             if (formatConfig == null) {
                 result.addFailedField(de, expected, "Unsupported format identifier: " + formatIdentifier);
                 return false;
             }
 
-            // Get the list of valid paths for this format
-            JsonNode validPaths = formatConfig.get("paths");
-            if (validPaths == null || !validPaths.isArray()) {
+            // Field names mapped to their canonical paths for this format
+            Map<String, String> fieldPaths = formatConfig.fieldPaths;
+            if (fieldPaths == null) {
                 result.addFailedField(de, expected, "Invalid format configuration - missing paths array");
                 return false;
             }
 
-            // Create a map of field names to their canonical paths
-            Map<String, String> fieldPaths = new HashMap<>();
-            validPaths.forEach(pathNode -> {
-                String path = pathNode.asText();
-                String fieldName = path.substring(path.lastIndexOf(".") + 1);
-                fieldPaths.put(fieldName, path);
-            });
-
             // Get primary bitmap (positions 6-13)
-            String primaryBitmapHex = expected.substring(5, 13);
-            String primaryBitmapBinary = hexToBinary(primaryBitmapHex);
+            long primaryBitmap = IsoHexCodec.parseHex(expected, 5, 8);
 
             // Start processing from position 14 (after format identifier, length, and primary bitmap)
             int currentPos = 13;
 
             // Process primary bitmap bits (32 bits)
             for (int bit = 1; bit <= 32; bit++) {
-                JsonNode bitConfig = formatConfig.get("primaryBitmap").get("fields").get(String.valueOf(bit));
+                SubField bitConfig = formatConfig.primaryFields.get(bit);
                 if (bitConfig != null) {
-                    int fieldLength = bitConfig.get("length").asInt();
-                    String fieldName = bitConfig.get("name").asText();
+                    int fieldLength = bitConfig.length;
+                    String fieldName = bitConfig.name;
 
                     // If bit is set (1), validate the field
-                    if (primaryBitmapBinary.charAt(bit - 1) == '1') {
+                    if (IsoHexCodec.isBitSet(primaryBitmap, bit, 32)) {
                         String fieldValue = expected.substring(currentPos, currentPos + fieldLength);
 
                         // Only validate if this field has a path in the paths array
@@ -1704,21 +1632,20 @@ public class DataElementSpecialCaseValidator {
             }
 
             // Check if secondary bitmap is present (bit 32 of primary bitmap)
-            if (primaryBitmapBinary.charAt(31) == '1') {
-                String secondaryBitmapHex = expected.substring(currentPos, currentPos + 8);
-                String secondaryBitmapBinary = hexToBinary(secondaryBitmapHex);
+            if (IsoHexCodec.isBitSet(primaryBitmap, 32, 32)) {
+                long secondaryBitmap = IsoHexCodec.parseHex(expected, currentPos, 8);
                 currentPos += 8;  // Advance by 8 hex digits after reading secondary bitmap
 
                 // Process secondary bitmap bits (32 bits)
                 for (int bit = 1; bit <= 32; bit++) {
                     int actualBit = bit + 32;  // Fields 33-64 for secondary bitmap
-                    JsonNode bitConfig = formatConfig.get("secondaryBitmap").get("fields").get(String.valueOf(actualBit));
+                    SubField bitConfig = formatConfig.secondaryFields.get(actualBit);
                     if (bitConfig != null) {
-                        int fieldLength = bitConfig.get("length").asInt();
-                        String fieldName = bitConfig.get("name").asText();
+                        int fieldLength = bitConfig.length;
+                        String fieldName = bitConfig.name;
 
                         // If bit is set (1), process the field
-                        if (secondaryBitmapBinary.charAt(bit - 1) == '1') {
+                        if (IsoHexCodec.isBitSet(secondaryBitmap, bit, 32)) {
                             String fieldValue = expected.substring(currentPos, currentPos + fieldLength);
 
                             // Validate if this field has a path in the paths array
@@ -1741,7 +1668,7 @@ public class DataElementSpecialCaseValidator {
             if (!allValid) {
                 result.addFailedField(de, expected, details.toString());
             } else {
-                result.addPassedField(de, expected, actual);
+                result.addPassedField(de, expected, canonical.getRaw());
             }
 
             return allValid;
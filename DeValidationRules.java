@@ -0,0 +1,276 @@
+package utilities;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static utilities.CreateIsoMessage.*;
+import static utilities.ValidationResultManager.*;
+
+/**
+ * Typed forms of the "rules" and "format" blocks of the validation config.
+ * {@link DataElementSpecialCaseValidator} parses each block once when a DE validator is compiled,
+ * so validating a row reads plain fields and maps instead of walking the JSON tree.
+ * Parsing is lenient: a missing entry only fails the rows that need it, as before.
+ */
+final class DeValidationRules {
+
+    private DeValidationRules() {
+    }
+
+    /**
+     * Reads a code table such as a "mapping" block
+     * @param node The table; may be missing
+     * @return The codes and their canonical values, empty if the table is missing
+     */
+    static Map<String, String> mapping(JsonNode node) {
+        Map<String, String> mapping = new HashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext();) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            mapping.put(entry.getKey(), entry.getValue().asText());
+        }
+        return Collections.unmodifiableMap(mapping);
+    }
+
+    /**
+     * The "mti" rule that limits a DE's validation to one message type
+     */
+    static final class MtiRule {
+        private final String required;
+        private final String skipReason;
+
+        private MtiRule(String required, String skipReason) {
+            this.required = required;
+            this.skipReason = skipReason;
+        }
+
+        /**
+         * @return The rule, or null if the block has none
+         */
+        static MtiRule parse(JsonNode rules) {
+            JsonNode mti = rules.path("mti");
+            if (!mti.has("required")) {
+                return null;
+            }
+            return new MtiRule(mti.get("required").asText(), mti.has("skipReason") ? mti.get("skipReason").asText() : null);
+        }
+
+        /**
+         * Records the DE as skipped if the message being validated has a different MTI
+         * @return true if the DE was skipped
+         */
+        boolean skip(String de, String expected, ValidationResult result) {
+            if (required.equals(isoFields().get(0))) {
+                return false;
+            }
+            result.addSkippedField(de, expected, skipReason != null ? skipReason
+                    : "DE " + de + " validation only applicable for MTI " + required);
+            return true;
+        }
+    }
+
+    /**
+     * One entry of a "positions" block: where a sub-element sits in the DE value and how its codes map
+     */
+    static final class Segment {
+        final int start;
+        final int end;
+        final int position;
+        private final Map<String, String> mapping;
+        private final Map<String, Segment> components;
+
+        private Segment(JsonNode node) {
+            this.start = node.path("start").asInt();
+            this.end = node.path("end").asInt();
+            this.position = node.path("position").asInt();
+            this.mapping = mapping(node.path("mapping"));
+            Map<String, Segment> components = new LinkedHashMap<>();
+            node.path("components").fields().forEachRemaining(e -> components.put(e.getKey(), new Segment(e.getValue())));
+            this.components = Collections.unmodifiableMap(components);
+        }
+
+        /**
+         * Gets the canonical value for a code of this segment
+         * @throws IllegalArgumentException if the code is not mapped
+         */
+        String decode(String code) {
+            String value = mapping.get(code);
+            if (value == null) {
+                throw new IllegalArgumentException("No mapping for code '" + code + "'");
+            }
+            return value;
+        }
+
+        Map<String, String> getMapping() {
+            return mapping;
+        }
+
+        /**
+         * Gets the sub-segments, in config order
+         */
+        Map<String, Segment> getComponents() {
+            return components;
+        }
+
+        /**
+         * @throws IllegalArgumentException if the segment has no such component
+         */
+        Segment component(String name) {
+            Segment component = components.get(name);
+            if (component == null) {
+                throw new IllegalArgumentException("No rule for component " + name);
+            }
+            return component;
+        }
+    }
+
+    /**
+     * A "rules" block of the position-based validators: an optional MTI rule and the position segments
+     */
+    static final class PositionRules {
+        final MtiRule mti;
+        private final Map<String, Segment> positions;
+
+        private PositionRules(MtiRule mti, Map<String, Segment> positions) {
+            this.mti = mti;
+            this.positions = positions;
+        }
+
+        static PositionRules parse(JsonNode rules) {
+            Map<String, Segment> positions = new HashMap<>();
+            rules.path("positions").fields().forEachRemaining(e -> positions.put(e.getKey(), new Segment(e.getValue())));
+            return new PositionRules(MtiRule.parse(rules), Collections.unmodifiableMap(positions));
+        }
+
+        /**
+         * @throws IllegalArgumentException if the block has no such position
+         */
+        Segment get(String name) {
+            Segment segment = positions.get(name);
+            if (segment == null) {
+                throw new IllegalArgumentException("No rule for position " + name);
+            }
+            return segment;
+        }
+    }
+
+    /**
+     * The reason-code tables of the advice/reversal code DE
+     */
+    static final class ReasonCodes {
+        final Map<String, String> reversalReasons;
+        final Map<String, String> adviceReasons;
+
+        private ReasonCodes(Map<String, String> reversalReasons, Map<String, String> adviceReasons) {
+            this.reversalReasons = reversalReasons;
+            this.adviceReasons = adviceReasons;
+        }
+
+        static ReasonCodes parse(JsonNode rules) {
+            JsonNode positions = rules.path("positions");
+            return new ReasonCodes(mapping(positions.path("reversalReasons")), mapping(positions.path("adviceReasons")));
+        }
+    }
+
+    /**
+     * The rules of the incremental authorization DE
+     */
+    static final class IncrementalAuthRules {
+        final MtiRule mti;
+        final String authorizationType;
+
+        private IncrementalAuthRules(MtiRule mti, String authorizationType) {
+            this.mti = mti;
+            this.authorizationType = authorizationType;
+        }
+
+        static IncrementalAuthRules parse(JsonNode rules) {
+            return new IncrementalAuthRules(MtiRule.parse(rules),
+                    rules.path("authorizationType").path("mapping").path("default").asText(null));
+        }
+    }
+
+    /**
+     * The "pairedField" of a datetime format: the other DE holding the date or time half
+     */
+    static final class PairedField {
+        final String field;
+        final String type;
+
+        private PairedField(String field, String type) {
+            this.field = field;
+            this.type = type;
+        }
+
+        /**
+         * @return The paired field, or null if the format has none
+         */
+        static PairedField parse(JsonNode format) {
+            JsonNode paired = format.path("pairedField");
+            if (paired.isMissingNode()) {
+                return null;
+            }
+            return new PairedField(paired.path("field").asText(), paired.path("type").asText());
+        }
+    }
+
+    /**
+     * One format identifier (MC, MD) of the additional data DE: the canonical paths it fills
+     * and the sub-fields of its primary and secondary bitmaps
+     */
+    static final class AdditionalDataFormat {
+        final Map<String, String> fieldPaths;
+        final Map<Integer, SubField> primaryFields;
+        final Map<Integer, SubField> secondaryFields;
+
+        private AdditionalDataFormat(JsonNode format) {
+            JsonNode paths = format.get("paths");
+            if (paths != null && paths.isArray()) {
+                // Field names are the last segment of each canonical path
+                Map<String, String> fieldPaths = new HashMap<>();
+                paths.forEach(pathNode -> {
+                    String path = pathNode.asText();
+                    fieldPaths.put(path.substring(path.lastIndexOf(".") + 1), path);
+                });
+                this.fieldPaths = Collections.unmodifiableMap(fieldPaths);
+            } else {
+                this.fieldPaths = null;
+            }
+            this.primaryFields = subFields(format.path("primaryBitmap"));
+            this.secondaryFields = subFields(format.path("secondaryBitmap"));
+        }
+
+        /**
+         * @return The formats by identifier
+         */
+        static Map<String, AdditionalDataFormat> parseAll(JsonNode rules) {
+            Map<String, AdditionalDataFormat> formats = new HashMap<>();
+            rules.path("formatIdentifiers").fields().forEachRemaining(e -> formats.put(e.getKey(), new AdditionalDataFormat(e.getValue())));
+            return Collections.unmodifiableMap(formats);
+        }
+
+        private static Map<Integer, SubField> subFields(JsonNode bitmap) {
+            Map<Integer, SubField> fields = new HashMap<>();
+            bitmap.path("fields").fields().forEachRemaining(e -> fields.put(Integer.parseInt(e.getKey()),
+                    new SubField(e.getValue().path("name").asText(), e.getValue().path("length").asInt())));
+            return Collections.unmodifiableMap(fields);
+        }
+    }
+
+    /**
+     * A bitmap-addressed sub-field of the additional data DE
+     */
+    static final class SubField {
+        final String name;
+        final int length;
+
+        private SubField(String name, int length) {
+            this.name = name;
+            this.length = length;
+        }
+    }
+}
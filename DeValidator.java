@@ -0,0 +1,20 @@
+package utilities;
+
+import utilities.ValidationResultManager.ValidationResult;
+
+/**
+ * Special-case validation for one DE, compiled once from the DE's config entry
+ * by {@link DeValidatorRegistry} and reused for every message.
+ */
+public interface DeValidator {
+
+    /**
+     * Validates a DE against the canonical response and records the outcome
+     * @param de The data element number
+     * @param expected The expected value from the spreadsheet
+     * @param canonical The canonical response for the message
+     * @param result The validation result to record into
+     * @return true if validation passes
+     */
+    boolean validate(String de, String expected, CanonicalResponse canonical, ValidationResult result);
+}
@@ -0,0 +1,27 @@
+package utilities;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Map;
+
+/**
+ * Creates validators for one "validation.type" of the ISO config.
+ * Custom types are added by listing implementations in
+ * META-INF/services/utilities.DeValidatorFactory; they take precedence over built-in types of the same name.
+ */
+public interface DeValidatorFactory {
+
+    /**
+     * Gets the validation type handled, as written in the config, e.g. "amount"
+     */
+    String getType();
+
+    /**
+     * Compiles the validator for one DE
+     * @param de The data element number
+     * @param validation The DE's "validation" config block
+     * @param fieldConfig The whole field configuration, for validators that look at other DEs
+     * @return The validator to use for every message
+     */
+    DeValidator create(String de, JsonNode validation, Map<String, JsonNode> fieldConfig);
+}
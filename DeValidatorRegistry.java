@@ -0,0 +1,59 @@
+package utilities;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps each config "validation.type" to the factory that compiles its validators.
+ * Built-in types come from {@link DataElementSpecialCaseValidator}; further types are
+ * discovered through {@link ServiceLoader} or added with {@link #register(DeValidatorFactory)}.
+ */
+public class DeValidatorRegistry {
+    private static final Map<String, DeValidatorFactory> factories = new ConcurrentHashMap<>();
+
+    static {
+        DataElementSpecialCaseValidator.builtInFactories().forEach(DeValidatorRegistry::register);
+        try {
+            for (DeValidatorFactory factory : ServiceLoader.load(DeValidatorFactory.class)) {
+                register(factory);
+            }
+        } catch (ServiceConfigurationError e) {
+            System.out.println("Warning: Unable to load custom DE validators: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Registers a factory, replacing any factory already registered for its type
+     */
+    public static void register(DeValidatorFactory factory) {
+        factories.put(factory.getType(), factory);
+    }
+
+    /**
+     * Compiles a validator for every DE whose config has a validation type
+     * @param fieldConfig The field configuration
+     * @return Validators keyed by DE; DEs with an unknown type are left out and compared as plain values
+     */
+    public static Map<String, DeValidator> compile(Map<String, JsonNode> fieldConfig) {
+        Map<String, DeValidator> validators = new HashMap<>();
+        fieldConfig.forEach((de, config) -> {
+            JsonNode validation = config.get("validation");
+            if (validation == null || !validation.has("type")) {
+                return;
+            }
+            String validationType = validation.get("type").asText();
+            DeValidatorFactory factory = factories.get(validationType);
+            if (factory == null) {
+                System.out.println("Unknown validation type: " + validationType + " for DE " + de);
+                return;
+            }
+            validators.put(de, factory.create(de, validation, fieldConfig));
+        });
+        return validators;
+    }
+}
@@ -41,9 +41,34 @@ public class ISO8583MessageGenerator {
         generateIsoFromSpreadsheet(filePath);
     }
 
+    @When("^I resume ISO message generation from spreadsheet \"([^\"]*)\"$")
+    public void i_resume_iso_message_generation_from_spreadsheet(String filePath) throws IOException {
+        generateIsoFromSpreadsheet(filePath, true);
+    }
+
+    @When("^I generate ISO messages from large spreadsheet \"([^\"]*)\" into \"([^\"]*)\"$")
+    public void i_generate_iso_messages_from_large_spreadsheet(String filePath, String outputPath) throws IOException {
+        generateIsoFromSpreadsheetStreaming(filePath, outputPath);
+    }
+
+    @When("^I convert spreadsheet \"([^\"]*)\" to test cases \"([^\"]*)\"$")
+    public void i_convert_spreadsheet_to_test_cases(String filePath, String outputPath) throws IOException {
+        convertSpreadsheetToTestCases(filePath, outputPath);
+    }
+
+    @When("^I generate ISO messages from test cases \"([^\"]*)\" into \"([^\"]*)\"$")
+    public void i_generate_iso_messages_from_test_cases(String testCasePath, String outputPath) throws IOException {
+        generateIsoFromTestCases(testCasePath, outputPath);
+    }
+
     @When("^I parse ISO message \"([^\"]*)\" into spreadsheet \"([^\"]*)\"$")
     public void i_parse_iso_message_into_spreadsheet(String isoMessage, String filePath) throws IOException {
         generateSpreadsheetFromIso(isoMessage, filePath);
     }
 
+    @When("^I parse ISO messages from file \"([^\"]*)\" into spreadsheet \"([^\"]*)\"$")
+    public void i_parse_iso_messages_from_file_into_spreadsheet(String messagesPath, String filePath) throws IOException {
+        generateSpreadsheetFromIsoFile(messagesPath, filePath);
+    }
+
 }
@@ -0,0 +1,171 @@
+package utilities;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Per-message ISO8583 bitmap backed by two 64-bit words.
+ * Field n (1-64) is held at bit n-1 of the primary word and field n (65-128)
+ * at bit n-65 of the secondary word, so iteration with
+ * {@link Long#numberOfTrailingZeros(long)} visits fields in ascending order.
+ * The wire representation (field 1 in the most significant bit) is obtained
+ * with {@link #getPrimaryWord()} / {@link #getSecondaryWord()}.
+ */
+public final class IsoBitmap {
+    private long primary;
+    private long secondary;
+
+    public IsoBitmap() {
+    }
+
+    /**
+     * Creates a bitmap from its wire representation
+     * @param primaryWord Primary bitmap with field 1 in the most significant bit
+     * @param secondaryWord Secondary bitmap with field 65 in the most significant bit
+     */
+    public static IsoBitmap fromWords(long primaryWord, long secondaryWord) {
+        IsoBitmap bitmap = new IsoBitmap();
+        bitmap.primary = Long.reverse(primaryWord);
+        bitmap.secondary = Long.reverse(secondaryWord);
+        return bitmap;
+    }
+
+    /**
+     * Clears every field in both bitmaps
+     */
+    public void reset() {
+        primary = 0L;
+        secondary = 0L;
+    }
+
+    /**
+     * Marks a field as present. Setting a field in 65-128 also sets field 1
+     * so the secondary bitmap is flagged as active.
+     * @param fieldNumber The field number (1-128)
+     */
+    public void set(int fieldNumber) {
+        checkFieldNumber(fieldNumber);
+        if (fieldNumber <= 64) {
+            primary |= 1L << (fieldNumber - 1);
+        } else {
+            secondary |= 1L << (fieldNumber - 65);
+            primary |= 1L;
+        }
+    }
+
+    /**
+     * Marks a field as absent. Clearing the last field in 65-128 also clears field 1,
+     * so the secondary bitmap is no longer flagged as active.
+     * @param fieldNumber The field number (1-128)
+     */
+    public void clear(int fieldNumber) {
+        checkFieldNumber(fieldNumber);
+        if (fieldNumber <= 64) {
+            primary &= ~(1L << (fieldNumber - 1));
+        } else {
+            secondary &= ~(1L << (fieldNumber - 65));
+            if (secondary == 0L) {
+                primary &= ~1L;
+            }
+        }
+    }
+
+    /**
+     * Checks if a field is present. Out of range field numbers are reported as absent.
+     * @param fieldNumber The field number (1-128)
+     */
+    public boolean isSet(int fieldNumber) {
+        if (fieldNumber <= 0 || fieldNumber > 128) {
+            return false;
+        }
+        if (fieldNumber <= 64) {
+            return (primary & (1L << (fieldNumber - 1))) != 0;
+        }
+        return (secondary & (1L << (fieldNumber - 65))) != 0;
+    }
+
+    /**
+     * Checks if any fields in the primary bitmap (1-64) are active
+     */
+    public boolean hasPrimaryFields() {
+        return primary != 0L;
+    }
+
+    /**
+     * Checks if any fields in the secondary bitmap (65-128) are active
+     */
+    public boolean hasSecondaryFields() {
+        return secondary != 0L;
+    }
+
+    /**
+     * Gets the number of active fields across both bitmaps
+     */
+    public int cardinality() {
+        return Long.bitCount(primary) + Long.bitCount(secondary);
+    }
+
+    /**
+     * Gets the first active field at or after the given field number
+     * @param fromField The field number to start from (1-128)
+     * @return The next active field number, or -1 if there is none
+     */
+    public int nextSetField(int fromField) {
+        if (fromField < 1) {
+            fromField = 1;
+        }
+        if (fromField <= 64) {
+            long word = primary & (-1L << (fromField - 1));
+            if (word != 0L) {
+                return Long.numberOfTrailingZeros(word) + 1;
+            }
+            fromField = 65;
+        }
+        if (fromField <= 128) {
+            long word = secondary & (-1L << (fromField - 65));
+            if (word != 0L) {
+                return Long.numberOfTrailingZeros(word) + 65;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Calls the consumer with every active field number in ascending order
+     */
+    public void forEachField(IntConsumer action) {
+        for (long word = primary; word != 0L; word &= word - 1) {
+            action.accept(Long.numberOfTrailingZeros(word) + 1);
+        }
+        for (long word = secondary; word != 0L; word &= word - 1) {
+            action.accept(Long.numberOfTrailingZeros(word) + 65);
+        }
+    }
+
+    /**
+     * Gets the primary bitmap in wire order (field 1 in the most significant bit)
+     */
+    public long getPrimaryWord() {
+        return Long.reverse(primary);
+    }
+
+    /**
+     * Gets the secondary bitmap in wire order (field 65 in the most significant bit)
+     */
+    public long getSecondaryWord() {
+        return Long.reverse(secondary);
+    }
+
+    /**
+     * Copies the state of another bitmap into this one
+     */
+    public void copyFrom(IsoBitmap other) {
+        this.primary = other.primary;
+        this.secondary = other.secondary;
+    }
+
+    private static void checkFieldNumber(int fieldNumber) {
+        if (fieldNumber <= 0 || fieldNumber > 128) {
+            throw new IllegalArgumentException("Field number must be between 1 and 128");
+        }
+    }
+}
@@ -1,17 +1,21 @@
 package utilities;
 
 public class IsoBitmapManager {
-    private static final boolean[] primaryBitmap = new boolean[64];
-    private static final boolean[] secondaryBitmap = new boolean[64];
+    // Each thread builds its own message, so each thread gets its own bitmap
+    private static final ThreadLocal<IsoBitmap> currentBitmap = ThreadLocal.withInitial(IsoBitmap::new);
+
+    /**
+     * Gets the bitmap of the message being built on the current thread
+     */
+    public static IsoBitmap currentBitmap() {
+        return currentBitmap.get();
+    }
 
     /**
      * Resets both primary and secondary bitmaps
      */
     public static void resetBitmaps() {
-        for (int i = 0; i < 64; i++) {
-            primaryBitmap[i] = false;
-            secondaryBitmap[i] = false;
-        }
+        currentBitmap.get().reset();
     }
 
     /**
@@ -19,84 +23,63 @@ public class IsoBitmapManager {
      * @param fieldNumber The field number (1-128)
      */
     public static void setBit(int fieldNumber) {
-        if (fieldNumber <= 0 || fieldNumber > 128) {
-            throw new IllegalArgumentException("Field number must be between 1 and 128");
-        }
-
-        if (fieldNumber <= 64) {
-            primaryBitmap[fieldNumber - 1] = true;
-        } else {
-            secondaryBitmap[fieldNumber - 65] = true;
-            primaryBitmap[0] = true; // Ensure secondary bitmap is marked active
-        }
+        // Setting a field in 65-128 also marks the secondary bitmap as active
+        currentBitmap.get().set(fieldNumber);
     }
 
     /**
      * Checks if any fields in the primary bitmap (1-64) are active
      */
     public static boolean hasActivePrimaryFields() {
-        for (int i = 0; i < 64; i++) {
-            if (primaryBitmap[i]) {
-                return true;
-            }
-        }
-        return false;
+        return currentBitmap.get().hasPrimaryFields();
     }
 
     /**
      * Checks if any fields in the secondary bitmap (65-128) are active
      */
     public static boolean hasActiveSecondaryFields() {
-        for (int i = 0; i < 64; i++) {
-            if (secondaryBitmap[i]) {
-                return true;
-            }
-        }
-        return false;
+        return currentBitmap.get().hasSecondaryFields();
+    }
+
+    /**
+     * Gets the number of active fields across both bitmaps
+     */
+    public static int getActiveFieldCount() {
+        return currentBitmap.get().cardinality();
     }
 
     /**
      * Converts a bitmap array to its hexadecimal representation
      */
     public static String bitmapToHex(boolean[] bitmap) {
-        StringBuilder binary = new StringBuilder();
-        for (boolean bit : bitmap) {
-            binary.append(bit ? "1" : "0");
-        }
-
-        // Convert binary string to hex
-        StringBuilder hex = new StringBuilder();
-        for (int i = 0; i < 64; i += 4) {
-            hex.append(Integer.toHexString(Integer.parseInt(binary.substring(i, i + 4), 2)).toUpperCase());
+        long word = 0L;
+        for (int i = 0; i < 64; i++) {
+            if (bitmap[i]) {
+                word |= 1L << (63 - i);
+            }
         }
-        return hex.toString();
+        return IsoHexCodec.toHex(word);
     }
 
     /**
      * Converts a hexadecimal string to its binary representation
      */
     public static String hexToBinary(String hex) {
-        StringBuilder binary = new StringBuilder();
-        for (int i = 0; i < hex.length(); i++) {
-            String bin = String.format("%4s", Integer.toBinaryString(Integer.parseInt(hex.substring(i, i + 1), 16)))
-                    .replace(' ', '0');
-            binary.append(bin);
-        }
-        return binary.toString();
+        return IsoHexCodec.hexToBinary(hex);
     }
 
     /**
      * Gets the primary bitmap as a hex string
      */
     public static String getPrimaryBitmapHex() {
-        return bitmapToHex(primaryBitmap);
+        return IsoHexCodec.toHex(currentBitmap.get().getPrimaryWord());
     }
 
     /**
      * Gets the secondary bitmap as a hex string
      */
     public static String getSecondaryBitmapHex() {
-        return bitmapToHex(secondaryBitmap);
+        return IsoHexCodec.toHex(currentBitmap.get().getSecondaryWord());
     }
 
     /**
@@ -104,14 +87,6 @@ public class IsoBitmapManager {
      * @param fieldNumber The field number (1-128)
      */
     public static boolean isBitSet(int fieldNumber) {
-        if (fieldNumber <= 0 || fieldNumber > 128) {
-            return false;
-        }
-
-        if (fieldNumber <= 64) {
-            return primaryBitmap[fieldNumber - 1];
-        } else {
-            return secondaryBitmap[fieldNumber - 65];
-        }
+        return currentBitmap.get().isSet(fieldNumber);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,67 @@
+package utilities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sets and clears fields on an IsoBitmap and checks the secondary bitmap flag (field 1) follows
+ */
+public class IsoBitmapTest {
+
+    @Test
+    public void settingSecondaryFieldFlagsSecondaryBitmap() {
+        IsoBitmap bitmap = new IsoBitmap();
+        bitmap.set(100);
+
+        assertTrue(bitmap.isSet(1));
+        assertTrue(bitmap.hasSecondaryFields());
+        assertEquals(0x8000000000000000L, bitmap.getPrimaryWord());
+        assertEquals(0x0000000010000000L, bitmap.getSecondaryWord());
+    }
+
+    @Test
+    public void clearingLastSecondaryFieldClearsFlag() {
+        IsoBitmap bitmap = new IsoBitmap();
+        bitmap.set(3);
+        bitmap.set(100);
+        bitmap.set(128);
+
+        bitmap.clear(100);
+        assertTrue("Field 128 is still present", bitmap.isSet(1));
+
+        bitmap.clear(128);
+        assertFalse(bitmap.isSet(1));
+        assertFalse(bitmap.hasSecondaryFields());
+        assertEquals(3, bitmap.nextSetField(1));
+        assertEquals(1, bitmap.cardinality());
+    }
+
+    @Test
+    public void clearingPrimaryFieldKeepsFlag() {
+        IsoBitmap bitmap = new IsoBitmap();
+        bitmap.set(3);
+        bitmap.set(100);
+
+        bitmap.clear(3);
+
+        assertTrue(bitmap.isSet(1));
+        assertTrue(bitmap.isSet(100));
+    }
+
+    @Test
+    public void wordsRoundTrip() {
+        IsoBitmap bitmap = new IsoBitmap();
+        bitmap.set(2);
+        bitmap.set(64);
+        bitmap.set(65);
+
+        IsoBitmap copy = IsoBitmap.fromWords(bitmap.getPrimaryWord(), bitmap.getSecondaryWord());
+
+        assertEquals(bitmap.getPrimaryWord(), copy.getPrimaryWord());
+        assertEquals(bitmap.getSecondaryWord(), copy.getSecondaryWord());
+        assertEquals(2, copy.nextSetField(2));
+        assertEquals(64, copy.nextSetField(3));
+        assertEquals(65, copy.nextSetField(65));
+    }
+}
@@ -0,0 +1,144 @@
+package utilities;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Optional cache of canonical responses keyed by the SHA-256 of the ISO message bytes.
+ * Lookups go to an in-memory LRU first, then to one file per message under
+ * target/canonical-cache/&lt;config fingerprint&gt;/, so repeated messages within a run and across
+ * runs of the same workbook skip the canonical service. Entries belong to the config snapshot
+ * they were produced under: the memory tier is dropped when the snapshot changes and the disk
+ * tier is partitioned by the config content hash.
+ * Enable with -Diso.canonical.cache=true; size the memory tier with iso.canonical.cache.size.
+ */
+public class IsoCanonicalCache {
+    private static final boolean ENABLED = Boolean.getBoolean("iso.canonical.cache");
+    private static final int MAX_MEMORY_ENTRIES = Integer.getInteger("iso.canonical.cache.size", 10_000);
+    private static final Path CACHE_ROOT = Paths.get(System.getProperty("iso.canonical.cache.dir", "target/canonical-cache"));
+
+    private static final ThreadLocal<MessageDigest> digest = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private static final Map<String, String> memory = new LinkedHashMap<String, String>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_MEMORY_ENTRIES;
+        }
+    };
+    private static long memoryVersion = -1;
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Gets the cached canonical response for a message
+     * @param snapshot The config the response must have been produced under
+     * @param isoMessage The ISO message
+     * @return The canonical response, or null if it is not cached or the cache is disabled
+     */
+    public static String get(IsoConfigCache.ConfigSnapshot snapshot, String isoMessage) {
+        if (!ENABLED || snapshot == null) {
+            return null;
+        }
+        String key = keyOf(isoMessage);
+        synchronized (memory) {
+            checkVersion(snapshot);
+            String cached = memory.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        try {
+            String stored = Files.readString(entryPath(snapshot, key), StandardCharsets.UTF_8);
+            synchronized (memory) {
+                checkVersion(snapshot);
+                memory.put(key, stored);
+            }
+            return stored;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.out.println("Warning: Unable to read canonical cache entry " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Caches a canonical response in both tiers; only successful (2xx) responses are cached
+     * @param snapshot The config the response was produced under
+     * @param isoMessage The ISO message
+     * @param statusCode The HTTP status the response came with
+     * @param canonicalResponse The response from the canonical service
+     */
+    public static void put(IsoConfigCache.ConfigSnapshot snapshot, String isoMessage, int statusCode, String canonicalResponse) {
+        if (!ENABLED || snapshot == null || statusCode < 200 || statusCode >= 300 || canonicalResponse == null) {
+            return;
+        }
+        String key = keyOf(isoMessage);
+        synchronized (memory) {
+            checkVersion(snapshot);
+            memory.put(key, canonicalResponse);
+        }
+
+        Path entry = entryPath(snapshot, key);
+        try {
+            Files.createDirectories(entry.getParent());
+            // Write then rename, so a concurrent reader never sees a half-written entry
+            Path temp = Files.createTempFile(entry.getParent(), key, ".tmp");
+            Files.writeString(temp, canonicalResponse, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.out.println("Warning: Unable to write canonical cache entry " + key + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Empties the memory tier; disk entries are kept until target/ is cleaned
+     */
+    public static void clear() {
+        synchronized (memory) {
+            memory.clear();
+            memoryVersion = -1;
+        }
+    }
+
+    /**
+     * Drops the memory tier if it was filled under a different config snapshot; callers hold the memory lock
+     */
+    private static void checkVersion(IsoConfigCache.ConfigSnapshot snapshot) {
+        if (memoryVersion != snapshot.getVersion()) {
+            memory.clear();
+            memoryVersion = snapshot.getVersion();
+        }
+    }
+
+    private static Path entryPath(IsoConfigCache.ConfigSnapshot snapshot, String key) {
+        return CACHE_ROOT.resolve(snapshot.getFingerprint()).resolve(key.substring(0, 2)).resolve(key + ".json");
+    }
+
+    private static String keyOf(String isoMessage) {
+        return IsoHexCodec.toHex(digest.get().digest(isoMessage.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,66 @@
+package utilities;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Puts canonical responses into IsoCanonicalCache and checks only successful ones come back
+ */
+public class IsoCanonicalCacheTest {
+    private static final Path CACHE_DIR;
+
+    static {
+        // The cache reads its settings once, so they are set before the class is first used
+        try {
+            CACHE_DIR = Files.createTempDirectory("canonical-cache");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        System.setProperty("iso.canonical.cache", "true");
+        System.setProperty("iso.canonical.cache.dir", CACHE_DIR.toString());
+    }
+
+    private final IsoConfigCache.ConfigSnapshot snapshot = new IsoConfigCache.ConfigSnapshot(
+            CACHE_DIR.resolve("config.json"), FileTime.fromMillis(0), 1, "fingerprint", Collections.emptyMap());
+
+    @Before
+    public void setUp() {
+        assertTrue("Cache must be enabled before IsoCanonicalCache is loaded", IsoCanonicalCache.isEnabled());
+        IsoCanonicalCache.clear();
+    }
+
+    @AfterClass
+    public static void tearDown() throws IOException {
+        IsoCanonicalCache.clear();
+        try (Stream<Path> paths = Files.walk(CACHE_DIR)) {
+            paths.sorted(Collections.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void successfulResponseIsCachedInBothTiers() {
+        IsoCanonicalCache.put(snapshot, "0100ok", 200, "{\"ok\":true}");
+
+        assertEquals("{\"ok\":true}", IsoCanonicalCache.get(snapshot, "0100ok"));
+        IsoCanonicalCache.clear();
+        assertEquals("{\"ok\":true}", IsoCanonicalCache.get(snapshot, "0100ok"));
+    }
+
+    @Test
+    public void badRequestWithoutErrorPrefixIsNotCached() {
+        // A 400 body with no message or error field is returned as is, without the "Error:" prefix
+        IsoCanonicalCache.put(snapshot, "0100bad", 400, "{\"detail\":\"bad DE 2\"}");
+
+        assertNull(IsoCanonicalCache.get(snapshot, "0100bad"));
+    }
+}
@@ -0,0 +1,206 @@
+package utilities;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide cache of parsed and compiled ISO configurations, keyed by file path.
+ * A cached snapshot is reused for as long as the file's modification time is unchanged.
+ * Each config directory is also watched with a WatchService so an edited file is
+ * re-parsed in the background and the new snapshot swapped in atomically.
+ */
+public class IsoConfigCache {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final Map<Path, ConfigSnapshot> snapshots = new ConcurrentHashMap<>();
+    private static final Set<Path> watchedDirectories = ConcurrentHashMap.newKeySet();
+    private static final AtomicLong versionCounter = new AtomicLong();
+
+    /**
+     * Gets the snapshot for a config file, parsing it only if it is new or has changed on disk
+     * @param path The config file
+     * @return The current snapshot
+     */
+    public static ConfigSnapshot get(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        FileTime modified = Files.getLastModifiedTime(key);
+        ConfigSnapshot cached = snapshots.get(key);
+        if (cached != null && cached.getLastModified().equals(modified)) {
+            return cached;
+        }
+
+        ConfigSnapshot loaded = reload(key);
+        watch(key);
+        return loaded;
+    }
+
+    /**
+     * Drops every cached snapshot; watchers keep running and reload on the next change
+     */
+    public static void clear() {
+        snapshots.clear();
+    }
+
+    private static ConfigSnapshot reload(Path key) throws IOException {
+        FileTime modified = Files.getLastModifiedTime(key);
+        byte[] content = Files.readAllBytes(key);
+        JsonNode jsonNode = objectMapper.readTree(content);
+
+        Map<String, JsonNode> fieldConfig = new HashMap<>();
+        for (Iterator<String> it = jsonNode.fieldNames(); it.hasNext(); ) {
+            String field = it.next();
+            fieldConfig.put(field, jsonNode.get(field));
+        }
+
+        ConfigSnapshot snapshot = new ConfigSnapshot(key, modified, versionCounter.incrementAndGet(), fingerprint(content), fieldConfig);
+        snapshots.put(key, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Hashes the config file content, so identical configs share a fingerprint across runs
+     */
+    private static String fingerprint(byte[] content) {
+        try {
+            return IsoHexCodec.toHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Starts a daemon thread watching the directory of a config file, once per directory
+     */
+    private static void watch(Path file) {
+        Path directory = file.getParent();
+        if (directory == null || !watchedDirectories.add(directory)) {
+            return;
+        }
+
+        WatchService watchService;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            // Modification time checks in get() still pick up changes
+            System.out.println("Warning: Unable to watch config directory " + directory + ": " + e.getMessage());
+            return;
+        }
+
+        Thread watcher = new Thread(() -> watchLoop(directory, watchService), "iso-config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private static void watchLoop(Path directory, WatchService watchService) {
+        try {
+            while (true) {
+                WatchKey watchKey = watchService.take();
+                for (WatchEvent<?> event : watchKey.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        continue;
+                    }
+                    Path changed = directory.resolve((Path) event.context()).toAbsolutePath().normalize();
+                    ConfigSnapshot current = snapshots.get(changed);
+                    if (current == null) {
+                        continue; // Not a config we have loaded
+                    }
+                    try {
+                        if (!Files.getLastModifiedTime(changed).equals(current.getLastModified())) {
+                            reload(changed);
+                            System.out.println("Reloaded ISO config " + changed);
+                        }
+                    } catch (IOException e) {
+                        // Half-written files fail to parse; keep the previous snapshot until the next event
+                        System.out.println("Warning: Failed to reload ISO config " + changed + ": " + e.getMessage());
+                    }
+                }
+                if (!watchKey.reset()) {
+                    watchedDirectories.remove(directory);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Immutable parsed and compiled form of one version of a config file
+     */
+    public static final class ConfigSnapshot {
+        private final Path path;
+        private final FileTime lastModified;
+        private final long version;
+        private final String fingerprint;
+        private final Map<String, JsonNode> fieldConfig;
+        private final IsoFieldPlan plan;
+        private final CanonicalExtractor extractor;
+        private final CanonicalPathSelector pathSelector;
+        private final Map<String, DeValidator> validators;
+
+        ConfigSnapshot(Path path, FileTime lastModified, long version, String fingerprint, Map<String, JsonNode> fieldConfig) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.version = version;
+            this.fingerprint = fingerprint;
+            this.fieldConfig = Collections.unmodifiableMap(fieldConfig);
+            this.plan = IsoFieldPlan.compile(fieldConfig);
+            this.extractor = CanonicalExtractor.compile(fieldConfig);
+            this.pathSelector = CanonicalPathSelector.compile(fieldConfig);
+            this.validators = Collections.unmodifiableMap(DeValidatorRegistry.compile(fieldConfig));
+        }
+
+        public Path getPath() { return path; }
+        public FileTime getLastModified() { return lastModified; }
+
+        /**
+         * Gets a process-wide sequence number that changes every time a config is (re)loaded
+         */
+        public long getVersion() { return version; }
+
+        /**
+         * Gets the SHA-256 of the config file content; unlike the version, it is stable across runs
+         */
+        public String getFingerprint() { return fingerprint; }
+
+        /**
+         * Gets the field config; the map is unmodifiable and its nodes are shared, so callers must not modify them
+         */
+        public Map<String, JsonNode> getFieldConfig() { return fieldConfig; }
+        public IsoFieldPlan getPlan() { return plan; }
+
+        /**
+         * Gets the single-pass extractor for every canonical path in this config
+         */
+        public CanonicalExtractor getExtractor() { return extractor; }
+
+        /**
+         * Gets the read-only canonical path lists per DE, including the DE 60 and DE 111 variants
+         */
+        public CanonicalPathSelector getPathSelector() { return pathSelector; }
+
+        /**
+         * Gets the special case validators keyed by DE, compiled with the factories registered when this version was loaded
+         */
+        public Map<String, DeValidator> getValidators() { return validators; }
+    }
+}
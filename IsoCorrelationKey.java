@@ -0,0 +1,26 @@
+package utilities;
+
+/**
+ * Builds the key that ties an ISO response to its request: the MTI version and class
+ * (request 0100 and response 0110 share "01"), the STAN (DE 11) and the RRN (DE 37).
+ */
+public class IsoCorrelationKey {
+
+    /**
+     * Gets the correlation key of a request or response
+     * @param message The raw ISO message
+     * @param plan The compiled field configuration
+     * @throws IllegalArgumentException if the message cannot be parsed
+     */
+    public static String of(CharSequence message, IsoFieldPlan plan) {
+        IsoMessageView view = IsoMessageView.of(message, plan);
+        return of(view.getMti(), view.get(11), view.get(37));
+    }
+
+    /**
+     * Gets the correlation key from already extracted values; missing values count as empty
+     */
+    public static String of(String mti, String stan, String rrn) {
+        return mti.substring(0, 2) + ':' + (stan != null ? stan : "") + ':' + (rrn != null ? rrn.trim() : "");
+    }
+}
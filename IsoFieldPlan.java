@@ -0,0 +1,244 @@
+package utilities;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable, pre-compiled view of the DE configuration.
+ * Built once per loaded config so message building can walk a plain array
+ * indexed by DE number (0 = MTI, 1-128 = data elements) instead of doing
+ * Jackson lookups and format string comparisons per field.
+ */
+public final class IsoFieldPlan {
+    public static final int MAX_FIELD = 128;
+
+    private final FieldDescriptor[] descriptors;
+    private final int[] activeFields;
+    private final Map<String, String> keysByName;
+    private final Map<String, String> keysByCanonicalPath;
+
+    private IsoFieldPlan(FieldDescriptor[] descriptors, Map<String, String> keysByName, Map<String, String> keysByCanonicalPath) {
+        this.descriptors = descriptors;
+        this.keysByName = keysByName;
+        this.keysByCanonicalPath = keysByCanonicalPath;
+        this.activeFields = Arrays.stream(descriptors)
+                .filter(d -> d != null && d.getNumber() > 0 && d.isActive())
+                .mapToInt(FieldDescriptor::getNumber)
+                .toArray();
+    }
+
+    /**
+     * Compiles the raw field configuration into a field plan
+     * @param fieldConfig The config keyed by DE number ("MTI", "PrimaryBitmap", "2", ...)
+     * @return The compiled plan
+     */
+    public static IsoFieldPlan compile(Map<String, JsonNode> fieldConfig) {
+        FieldDescriptor[] descriptors = new FieldDescriptor[MAX_FIELD + 1];
+        Map<String, String> keysByName = new HashMap<>();
+        Map<String, String> keysByCanonicalPath = new HashMap<>();
+        for (Map.Entry<String, JsonNode> entry : fieldConfig.entrySet()) {
+            // Name and path lookups cover every config entry, bitmaps included; the first entry wins
+            JsonNode nameNode = entry.getValue().get("name");
+            if (nameNode != null) {
+                keysByName.putIfAbsent(nameNode.asText(), entry.getKey());
+            }
+            JsonNode canonical = entry.getValue().get("canonical");
+            if (canonical != null && canonical.isArray()) {
+                for (JsonNode path : canonical) {
+                    keysByCanonicalPath.putIfAbsent(path.asText().trim(), entry.getKey());
+                }
+            }
+
+            int number = toFieldNumber(entry.getKey());
+            if (number < 0 || number > MAX_FIELD) {
+                continue; // PrimaryBitmap has no DE number of its own
+            }
+            descriptors[number] = FieldDescriptor.of(number, entry.getKey(), entry.getValue());
+        }
+        return new IsoFieldPlan(descriptors,
+                Collections.unmodifiableMap(keysByName),
+                Collections.unmodifiableMap(keysByCanonicalPath));
+    }
+
+    /**
+     * Gets the descriptor for a DE number
+     * @param fieldNumber The DE number (0-128)
+     * @return The descriptor, or null if the DE is not configured
+     */
+    public FieldDescriptor get(int fieldNumber) {
+        if (fieldNumber < 0 || fieldNumber > MAX_FIELD) {
+            return null;
+        }
+        return descriptors[fieldNumber];
+    }
+
+    /**
+     * Gets the DE numbers (1-128) flagged as active in the config, in ascending order
+     */
+    public int[] getActiveFields() {
+        return activeFields.clone();
+    }
+
+    /**
+     * Gets the config key ("MTI", "2", ...) of the field with the given name
+     * @return The key, or null if no field has that name
+     */
+    public String findKeyByName(String name) {
+        return keysByName.get(name);
+    }
+
+    /**
+     * Gets the config key of the first field mapped to the given canonical path
+     * @return The key, or null if no field maps to that path
+     */
+    public String findKeyByCanonicalPath(String canonicalPath) {
+        return keysByCanonicalPath.get(canonicalPath);
+    }
+
+    private static int toFieldNumber(String key) {
+        if ("MTI".equalsIgnoreCase(key)) {
+            return 0;
+        }
+        if ("SecondaryBitmap".equalsIgnoreCase(key)) {
+            return 1;
+        }
+        try {
+            return Integer.parseInt(key);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * How a field value is laid out on the wire
+     */
+    public enum Encoder {
+        FIXED,
+        BINARY,
+        BITMAP,
+        LLVAR {
+            @Override
+            int prefixDigits() {
+                return 2;
+            }
+        },
+        LLLVAR {
+            @Override
+            int prefixDigits() {
+                return 3;
+            }
+        };
+
+        /**
+         * Number of length prefix digits written before the value (0 for fixed layouts)
+         */
+        int prefixDigits() {
+            return 0;
+        }
+
+        /**
+         * Appends the value, preceded by its length prefix if the layout has one
+         */
+        public void append(StringBuilder sb, String value) {
+            int digits = prefixDigits();
+            if (digits > 0) {
+                appendLength(sb, value.length(), digits);
+            }
+            sb.append(value);
+        }
+
+        /**
+         * Gets the value as it appears on the wire, including any length prefix
+         */
+        public String encode(String value) {
+            if (prefixDigits() == 0) {
+                return value;
+            }
+            StringBuilder sb = new StringBuilder(value.length() + prefixDigits());
+            append(sb, value);
+            return sb.toString();
+        }
+
+        static Encoder resolve(String format, String type) {
+            switch (format) {
+                case "llvar":
+                    return LLVAR;
+                case "lllvar":
+                    return LLLVAR;
+                case "bitmap":
+                    return BITMAP;
+                default:
+                    return "binary".equals(type) ? BINARY : FIXED;
+            }
+        }
+
+        private static void appendLength(StringBuilder sb, int length, int digits) {
+            // Zero padded like %02d / %03d, longer lengths are written in full
+            if (digits == 3 && length < 100) {
+                sb.append('0');
+            }
+            if (length < 10) {
+                sb.append('0');
+            }
+            sb.append(length);
+        }
+    }
+
+    /**
+     * Pre-resolved settings of a single data element
+     */
+    public static final class FieldDescriptor {
+        private final int number;
+        private final String key;
+        private final String name;
+        private final String type;
+        private final Encoder encoder;
+        private final int maxLength;
+        private final boolean active;
+
+        private FieldDescriptor(int number, String key, String name, String type, Encoder encoder, int maxLength, boolean active) {
+            this.number = number;
+            this.key = key;
+            this.name = name;
+            this.type = type;
+            this.encoder = encoder;
+            this.maxLength = maxLength;
+            this.active = active;
+        }
+
+        static FieldDescriptor of(int number, String key, JsonNode config) {
+            String type = config.path("type").asText();
+            String format = config.path("format").asText();
+            int maxLength = config.has("max_length") ? config.get("max_length").asInt() : config.path("length").asInt();
+            return new FieldDescriptor(
+                    number,
+                    key,
+                    config.has("name") ? config.get("name").asText() : null,
+                    type,
+                    Encoder.resolve(format, type),
+                    maxLength,
+                    config.path("active").asBoolean());
+        }
+
+        public int getNumber() { return number; }
+        public String getKey() { return key; }
+        public String getName() { return name; }
+        public String getType() { return type; }
+        public Encoder getEncoder() { return encoder; }
+        public int getMaxLength() { return maxLength; }
+        public boolean isActive() { return active; }
+
+        /**
+         * Gets the number of characters a fixed layout field occupies in the message.
+         * Bitmaps are configured in bits and carried as hex, four bits per character. Binary fields are
+         * carried as buildIsoMessage writes them, one '0'/'1' character per configured bit.
+         */
+        public int getFixedLength() {
+            return encoder == Encoder.BITMAP ? maxLength / 4 : maxLength;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package utilities;
+
+/**
+ * Table-driven conversions between bitmap words and their hexadecimal / raw byte forms.
+ * All methods work directly on the 64-bit word and only allocate the output.
+ */
+public class IsoHexCodec {
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final byte[] HEX_VALUES = new byte[128];
+    private static final String[] NIBBLE_BITS = new String[16];
+
+    static {
+        java.util.Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+        }
+        for (int i = 0; i < 16; i++) {
+            char[] bits = new char[4];
+            for (int b = 0; b < 4; b++) {
+                bits[b] = ((i >>> (3 - b)) & 1) != 0 ? '1' : '0';
+            }
+            NIBBLE_BITS[i] = new String(bits);
+        }
+    }
+
+    /**
+     * Converts a 64-bit word to its 16 character upper case hexadecimal representation
+     */
+    public static String toHex(long word) {
+        char[] hex = new char[16];
+        writeHex(word, hex, 0);
+        return new String(hex);
+    }
+
+    /**
+     * Writes the 16 hex characters of a 64-bit word into a char array
+     * @param word The word to encode
+     * @param dest The destination array
+     * @param offset The position of the first character
+     */
+    public static void writeHex(long word, char[] dest, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            dest[offset + i] = HEX_DIGITS[(int) (word & 0xF)];
+            word >>>= 4;
+        }
+    }
+
+    /**
+     * Converts a byte array, such as a message digest, to upper case hexadecimal
+     */
+    public static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >>> 4) & 0xF];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Appends the 16 hex characters of a 64-bit word to a StringBuilder
+     */
+    public static void appendHex(StringBuilder sb, long word) {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            sb.append(HEX_DIGITS[(int) ((word >>> shift) & 0xF)]);
+        }
+    }
+
+    /**
+     * Writes a 64-bit word as 8 big-endian bytes
+     */
+    public static void writeBytes(long word, byte[] dest, int offset) {
+        for (int i = 7; i >= 0; i--) {
+            dest[offset + i] = (byte) word;
+            word >>>= 8;
+        }
+    }
+
+    /**
+     * Reads a 64-bit word from 8 big-endian bytes
+     */
+    public static long readBytes(byte[] src, int offset) {
+        long word = 0L;
+        for (int i = 0; i < 8; i++) {
+            word = (word << 8) | (src[offset + i] & 0xFF);
+        }
+        return word;
+    }
+
+    /**
+     * Parses a full 16 character hex string into a 64-bit word
+     */
+    public static long parseHex(CharSequence hex) {
+        return parseHex(hex, 0, hex.length());
+    }
+
+    /**
+     * Parses up to 16 hex characters into a word, right-aligned
+     * (8 characters give a 32-bit value in the low half of the result)
+     * @param hex The characters to read
+     * @param offset The position of the first hex character
+     * @param length The number of hex characters to read (1-16)
+     * @throws IllegalArgumentException if a character is not a hex digit
+     */
+    public static long parseHex(CharSequence hex, int offset, int length) {
+        if (length <= 0 || length > 16) {
+            throw new IllegalArgumentException("Hex length must be between 1 and 16");
+        }
+        long word = 0L;
+        for (int i = offset; i < offset + length; i++) {
+            word = (word << 4) | hexValue(hex.charAt(i));
+        }
+        return word;
+    }
+
+    /**
+     * Checks if a bit is set in a bitmap word read from the wire
+     * @param word The bitmap word, right-aligned
+     * @param bit The 1-based bit number, 1 being the most significant bit
+     * @param width The number of bits in the bitmap (32 or 64)
+     */
+    public static boolean isBitSet(long word, int bit, int width) {
+        return ((word >>> (width - bit)) & 1L) != 0;
+    }
+
+    /**
+     * Converts a hexadecimal string to its binary representation
+     * @param hex The hexadecimal string to convert
+     * @return The binary string representation
+     */
+    public static String hexToBinary(String hex) {
+        StringBuilder binary = new StringBuilder(hex.length() * 4);
+        for (int i = 0; i < hex.length(); i++) {
+            binary.append(NIBBLE_BITS[hexValue(hex.charAt(i))]);
+        }
+        return binary.toString();
+    }
+
+    private static int hexValue(char c) {
+        int value = c < 128 ? HEX_VALUES[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid hex character: " + c);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,149 @@
+package utilities;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Writes ISO8583 messages straight into a caller supplied ByteBuffer.
+ * The bytes are identical to {@code buildIsoMessage().getBytes(UTF_8)} (MTI, hex bitmaps,
+ * decimal length prefixes, field text) but no intermediate Strings are built,
+ * so one buffer can be reused for every message a thread sends.
+ */
+public class IsoMessageEncoder {
+    private static final byte[] HEX_DIGITS = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'
+    };
+    private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    // One reusable buffer per thread for callers that don't manage their own
+    private static final ThreadLocal<ByteBuffer> threadBuffer =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(DEFAULT_BUFFER_SIZE));
+
+    /**
+     * Gets this thread's reusable buffer, cleared and ready to be written to
+     */
+    public static ByteBuffer threadBuffer() {
+        ByteBuffer buffer = threadBuffer.get();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Encodes a message after the ones already in this thread's buffer.
+     * If it does not fit, the thread moves on to a buffer twice the size; earlier messages stay in the old one.
+     * @return A view of just this message's bytes, valid until the next {@link #threadBuffer()} call reuses the buffer
+     */
+    public static ByteBuffer encodeNext(String mti, IsoBitmap bitmap, Map<Integer, String> fields, IsoFieldPlan plan) {
+        ByteBuffer buffer = threadBuffer.get();
+        while (true) {
+            int start = buffer.position();
+            try {
+                int length = encode(buffer, mti, bitmap, fields, plan);
+                ByteBuffer message = buffer.duplicate();
+                message.position(start).limit(start + length);
+                return message.slice();
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                threadBuffer.set(buffer);
+            }
+        }
+    }
+
+    /**
+     * Encodes a message at the buffer's current position
+     * @param dest The buffer to write to
+     * @param mti The message type indicator
+     * @param bitmap The fields present in the message
+     * @param fields The field values keyed by DE number
+     * @param plan The compiled field configuration
+     * @return The number of bytes written
+     * @throws java.nio.BufferOverflowException if the message does not fit in the buffer
+     */
+    public static int encode(ByteBuffer dest, String mti, IsoBitmap bitmap, Map<Integer, String> fields, IsoFieldPlan plan) {
+        int start = dest.position();
+
+        putText(dest, mti);
+        if (bitmap.hasPrimaryFields()) {
+            putHex(dest, bitmap.getPrimaryWord());
+        }
+        if (bitmap.hasSecondaryFields()) {
+            putHex(dest, bitmap.getSecondaryWord());
+        }
+
+        for (int field = bitmap.nextSetField(1); field != -1; field = bitmap.nextSetField(field + 1)) {
+            IsoFieldPlan.FieldDescriptor descriptor = plan.get(field);
+            String value = fields.get(field);
+            if (descriptor == null || value == null) continue;
+
+            int digits = descriptor.getEncoder().prefixDigits();
+            if (digits > 0) {
+                putLength(dest, value.length(), digits);
+            }
+            putText(dest, value);
+        }
+
+        return dest.position() - start;
+    }
+
+    /**
+     * Writes a length as zero padded decimal digits (like %02d / %03d)
+     */
+    static void putLength(ByteBuffer dest, int length, int digits) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Length must not be negative: " + length);
+        }
+        // Longer lengths are written in full, the same way String.format does
+        int size = 1;
+        for (int v = length; v >= 10; v /= 10) {
+            size++;
+        }
+        int width = Math.max(digits, size);
+        if (dest.remaining() < width) {
+            throw new BufferOverflowException();
+        }
+        int end = dest.position() + width;
+        for (int i = end - 1; i >= end - width; i--) {
+            dest.put(i, (byte) ('0' + length % 10));
+            length /= 10;
+        }
+        dest.position(end);
+    }
+
+    /**
+     * Writes the 16 hex characters of a bitmap word
+     */
+    static void putHex(ByteBuffer dest, long word) {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            dest.put(HEX_DIGITS[(int) ((word >>> shift) & 0xF)]);
+        }
+    }
+
+    /**
+     * Writes text as UTF-8, the charset the String path sends. A lone surrogate is written as '?'
+     * like String.getBytes does, so both paths always produce the same bytes.
+     */
+    static void putText(ByteBuffer dest, String value) {
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                dest.put((byte) c);
+            } else if (c < 0x800) {
+                dest.put((byte) (0xC0 | c >> 6));
+                dest.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                dest.put((byte) (0xF0 | cp >> 18));
+                dest.put((byte) (0x80 | cp >> 12 & 0x3F));
+                dest.put((byte) (0x80 | cp >> 6 & 0x3F));
+                dest.put((byte) (0x80 | cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                dest.put((byte) '?');
+            } else {
+                dest.put((byte) (0xE0 | c >> 12));
+                dest.put((byte) (0x80 | c >> 6 & 0x3F));
+                dest.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+}
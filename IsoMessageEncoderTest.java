@@ -0,0 +1,113 @@
+package utilities;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static utilities.IsoBitmapManager.*;
+
+/**
+ * Encodes messages with IsoMessageEncoder and checks the bytes match the UTF-8 form of buildIsoMessage()
+ */
+public class IsoMessageEncoderTest {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private IsoFieldPlan previousPlan;
+
+    @Before
+    public void setUp() throws Exception {
+        Map<String, JsonNode> config = new HashMap<>();
+        config.put("MTI", objectMapper.readTree("{\"format\":\"fixed\",\"type\":\"numeric\",\"length\":4}"));
+        config.put("2", objectMapper.readTree("{\"format\":\"llvar\",\"type\":\"numeric\",\"max_length\":19}"));
+        config.put("4", objectMapper.readTree("{\"format\":\"fixed\",\"type\":\"numeric\",\"length\":12}"));
+        config.put("43", objectMapper.readTree("{\"format\":\"fixed\",\"type\":\"alphanumeric\",\"length\":40}"));
+        config.put("48", objectMapper.readTree("{\"format\":\"lllvar\",\"type\":\"alphanumeric\",\"max_length\":999}"));
+        config.put("100", objectMapper.readTree("{\"format\":\"llvar\",\"type\":\"numeric\",\"max_length\":11}"));
+        previousPlan = CreateIsoMessage.fieldPlan;
+        CreateIsoMessage.fieldPlan = IsoFieldPlan.compile(config);
+        CreateIsoMessage.isoFields().clear();
+        resetBitmaps();
+    }
+
+    @After
+    public void tearDown() {
+        CreateIsoMessage.fieldPlan = previousPlan;
+        CreateIsoMessage.isoFields().clear();
+        resetBitmaps();
+    }
+
+    @Test
+    public void asciiMessageMatchesStringPath() {
+        put(0, "0100");
+        put(2, "5314451120000000");
+        put(4, "000000001000");
+        put(100, "12345");
+
+        assertEncodedMatchesString();
+    }
+
+    @Test
+    public void nonAsciiMessageMatchesStringPath() {
+        put(0, "0100");
+        put(43, "Café Ünïcode € 北京 😀 lone \uD800 end");
+        put(48, "Zürich");
+
+        assertEncodedMatchesString();
+    }
+
+    @Test
+    public void encodeNextGrowsWithoutDisturbingEarlierMessages() {
+        put(0, "0100");
+        char[] longValue = new char[900];
+        Arrays.fill(longValue, 'é'); // Two bytes each, so a few messages overflow the initial buffer
+
+        IsoMessageEncoder.threadBuffer();
+        ByteBuffer[] messages = new ByteBuffer[12];
+        byte[][] expected = new byte[messages.length][];
+        for (int i = 0; i < messages.length; i++) {
+            longValue[0] = (char) ('A' + i);
+            put(48, new String(longValue));
+            expected[i] = CreateIsoMessage.buildIsoMessage().getBytes(StandardCharsets.UTF_8);
+            messages[i] = IsoMessageEncoder.encodeNext(CreateIsoMessage.isoFields().get(0), currentBitmap(),
+                    CreateIsoMessage.isoFields(), CreateIsoMessage.fieldPlan);
+        }
+
+        for (int i = 0; i < messages.length; i++) {
+            assertArrayEquals("Message " + i, expected[i], bytes(messages[i]));
+        }
+    }
+
+    private static void put(int field, String value) {
+        CreateIsoMessage.isoFields().put(field, value);
+        if (field > 0) {
+            setBit(field);
+        }
+    }
+
+    private static void assertEncodedMatchesString() {
+        byte[] expected = CreateIsoMessage.buildIsoMessage().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        buffer.put((byte) 'x'); // Encoding starts at the buffer's position
+
+        int written = CreateIsoMessage.buildIsoMessage(buffer);
+
+        assertEquals(expected.length, written);
+        buffer.flip().position(1);
+        assertArrayEquals(expected, bytes(buffer));
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,32 @@
+package utilities;
+
+import java.util.Map;
+
+/**
+ * Parses ISO8583 messages in-process by running the compiled field configuration in reverse:
+ * MTI, primary bitmap, optional secondary bitmap, then each present field sliced by offset
+ * (fixed length from the config, LLVAR/LLLVAR from their length prefix).
+ */
+public class IsoMessageParser {
+
+    /**
+     * Creates a lazy view over a message; fields are only located and decoded when asked for
+     * @param message The raw ISO message as produced by {@link CreateIsoMessage#buildIsoMessage()}
+     * @param plan The compiled field configuration
+     * @throws IllegalArgumentException if the MTI or bitmaps cannot be read
+     */
+    public static IsoMessageView view(CharSequence message, IsoFieldPlan plan) {
+        return IsoMessageView.of(message, plan);
+    }
+
+    /**
+     * Parses a message into its field values
+     * @param message The raw ISO message as produced by {@link CreateIsoMessage#buildIsoMessage()}
+     * @param plan The compiled field configuration
+     * @return Field values keyed by DE number, 0 being the MTI
+     * @throws IllegalArgumentException if the message does not match the configuration
+     */
+    public static Map<Integer, String> parse(String message, IsoFieldPlan plan) {
+        return IsoMessageView.of(message, plan).toMap();
+    }
+}
@@ -1,6 +1,5 @@
 package utilities;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.util.HashMap;
@@ -8,14 +7,21 @@ import java.util.Map;
 
 public class IsoMessageProcessor {
     private static final ObjectMapper objectMapper = new ObjectMapper();
-    private final String webSocketUrl;
-    private final String parserUrl;
-    private final IsoWebSocketClient wsClient;
-
-    public IsoMessageProcessor(String webSocketUrl, String parserUrl) {
-        this.webSocketUrl = webSocketUrl;
-        this.parserUrl = parserUrl;
-        this.wsClient = new IsoWebSocketClient();
+    private final IsoFieldPlan fieldPlan;
+
+    /**
+     * Creates a processor that parses responses with the config loaded by {@link CreateIsoMessage#loadConfig(String)}
+     */
+    public IsoMessageProcessor() {
+        this(null);
+    }
+
+    /**
+     * Messages go over the WebSocket session shared through {@link IsoMessageTransport}
+     * @param fieldPlan The plan used to parse responses, or null for the loaded config
+     */
+    public IsoMessageProcessor(IsoFieldPlan fieldPlan) {
+        this.fieldPlan = fieldPlan;
     }
 
     /**
@@ -26,30 +32,17 @@ public class IsoMessageProcessor {
      */
     public ProcessedIsoResponse processIsoMessage(String isoMessage, String requestMti) {
         try {
-            // Send message via WebSocket and get response
-            String wsResponse = wsClient.sendIsoMessage(webSocketUrl, isoMessage);
+            // Send message over the shared WebSocket session and get the response matching it
+            String wsResponse = IsoMessageTransport.sendWebSocketMessage(isoMessage);
             System.out.println("\nWebSocket Response:");
             System.out.println(wsResponse);
 
-            // Send the WebSocket response to the parser
-            String parsedResponse = sendToParser(wsResponse);
-            JsonNode responseJson = objectMapper.readTree(parsedResponse);
+            // Parse the WebSocket response locally, only MTI and DE 39 are decoded here
+            IsoMessageView responseView = IsoMessageParser.view(wsResponse, getFieldPlan());
 
             // Extract MTI and DE 39 from response
-            String responseMti = null;
-            String responseCode = null;
-
-            // Find MTI and DE 39 in the parsed response
-            for (JsonNode element : responseJson) {
-                if (element.has("dataElementId")) {
-                    String deId = element.get("dataElementId").asText();
-                    if ("MTI".equals(deId)) {
-                        responseMti = element.get("value").asText();
-                    } else if ("39".equals(deId)) {
-                        responseCode = element.get("value").asText();
-                    }
-                }
-            }
+            String responseMti = responseView.getMti();
+            String responseCode = responseView.get(39);
 
             // Validate MTI
             String expectedResponseMti = getExpectedResponseMti(requestMti);
@@ -65,7 +58,7 @@ public class IsoMessageProcessor {
                 responseCode,
                 responseDesc,
                 wsResponse,
-                parsedResponse
+                responseView
             );
 
         } catch (Exception e) {
@@ -74,12 +67,14 @@ public class IsoMessageProcessor {
     }
 
     /**
-     * Send ISO message to parser
+     * Gets the field plan used to parse responses
      */
-    private String sendToParser(String isoMessage) throws Exception {
-        // Implementation should be moved from CreateIsoMessage class
-        // For now, using a placeholder
-        return ""; // Replace with actual implementation
+    private IsoFieldPlan getFieldPlan() {
+        IsoFieldPlan plan = fieldPlan != null ? fieldPlan : CreateIsoMessage.fieldPlan;
+        if (plan == null) {
+            throw new IllegalStateException("ISO configuration not loaded - call loadConfig first");
+        }
+        return plan;
     }
 
     /**
@@ -128,7 +123,8 @@ public class IsoMessageProcessor {
         private final String responseCode;
         private final String responseDescription;
         private final String rawResponse;
-        private final String parsedResponse;
+        private String parsedResponse;
+        private final IsoMessageView responseView;
         private final Exception error;
 
         public ProcessedIsoResponse(
@@ -146,6 +142,26 @@ public class IsoMessageProcessor {
             this.responseDescription = responseDescription;
             this.rawResponse = rawResponse;
             this.parsedResponse = parsedResponse;
+            this.responseView = null;
+            this.error = null;
+        }
+
+        public ProcessedIsoResponse(
+                String responseMti,
+                String expectedResponseMti,
+                boolean mtiValid,
+                String responseCode,
+                String responseDescription,
+                String rawResponse,
+                IsoMessageView responseView) {
+            this.responseMti = responseMti;
+            this.expectedResponseMti = expectedResponseMti;
+            this.mtiValid = mtiValid;
+            this.responseCode = responseCode;
+            this.responseDescription = responseDescription;
+            this.rawResponse = rawResponse;
+            this.parsedResponse = null;
+            this.responseView = responseView;
             this.error = null;
         }
 
@@ -157,6 +173,7 @@ public class IsoMessageProcessor {
             this.responseDescription = null;
             this.rawResponse = null;
             this.parsedResponse = null;
+            this.responseView = null;
             this.error = error;
         }
 
@@ -192,7 +209,21 @@ public class IsoMessageProcessor {
         public String getResponseCode() { return responseCode; }
         public String getResponseDescription() { return responseDescription; }
         public String getRawResponse() { return rawResponse; }
-        public String getParsedResponse() { return parsedResponse; }
+        public IsoMessageView getResponseView() { return responseView; }
+
+        /**
+         * Gets every response field as JSON, decoding the full message on first call
+         */
+        public String getParsedResponse() {
+            if (parsedResponse == null && responseView != null) {
+                try {
+                    parsedResponse = objectMapper.writeValueAsString(responseView.toMap());
+                } catch (Exception e) {
+                    parsedResponse = "Error: " + e.getMessage();
+                }
+            }
+            return parsedResponse;
+        }
         public Exception getError() { return error; }
     }
 } 
\ No newline at end of file
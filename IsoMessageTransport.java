@@ -2,22 +2,48 @@ package utilities;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import websocket.WebSocketClient;
-import websocket.WebSocketManager;
+import websocket.IsoWebSocketSession;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 public class IsoMessageTransport {
     private static final ObjectMapper objectMapper = new ObjectMapper();
     private static final String PARSER_URL = "replace with actual URL"; // Replace with actual URL
     private static final String CANONICAL_URL = "replace with actual URL"; // Replace with actual URL
+    private static final String CANONICAL_BATCH_URL = "replace with actual URL"; // Replace with actual URL
     private static final String WS_URL = "replace with actual URL"; // Replace with actual URL
+    private static final Duration WS_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration WS_RESPONSE_TIMEOUT = Duration.ofMillis(Long.getLong("iso.ws.responseTimeoutMs", 10_000));
+    private static final int WS_WINDOW = Integer.getInteger("iso.ws.window", 16);
+
+    private static final Duration HTTP_CONNECT_TIMEOUT = Duration.ofMillis(Long.getLong("iso.http.connectTimeoutMs", 5_000));
+    private static final Duration HTTP_REQUEST_TIMEOUT = Duration.ofMillis(Long.getLong("iso.http.requestTimeoutMs", 30_000));
+
+    // Shared client: keeps connections alive between rows and negotiates HTTP/2 where the server offers it
+    private static final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(HTTP_CONNECT_TIMEOUT)
+            .build();
+
+    // Cleared the first time the canonical service rejects a batch request
+    private static volatile boolean canonicalBatchSupported = true;
+
+    // One long-lived WebSocket connection shared by every request
+    private static IsoWebSocketSession webSocketSession;
 
     /**
      * Sends an ISO message to the parser endpoint
@@ -25,49 +51,25 @@ public class IsoMessageTransport {
      * @return The parsed response
      */
     public static String sendIsoMessageToParser(String isoMessage) throws IOException {
-        URL url = new URL(PARSER_URL);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Content-Type", "text/plain");
-        connection.setDoOutput(true);
-
-        // Send the request
-        try (OutputStream os = connection.getOutputStream()) {
-            byte[] input = isoMessage.getBytes(StandardCharsets.UTF_8);
-            os.write(input, 0, input.length);
-        }
-
-        // Get response code
-        int responseCode = connection.getResponseCode();
-        StringBuilder response = new StringBuilder();
-
-        // Use error stream for 400 responses, input stream for successful responses
-        try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(responseCode == 400
-                        ? connection.getErrorStream()
-                        : connection.getInputStream(), StandardCharsets.UTF_8))) {
-            String responseLine;
-            while ((responseLine = br.readLine()) != null) {
-                response.append(responseLine.trim());
-            }
-        }
+        return await(sendIsoMessageToParserAsync(isoMessage));
+    }
 
-        // For 400 responses, try to parse the error message
-        if (responseCode == 400) {
-            try {
-                JsonNode errorNode = objectMapper.readTree(response.toString());
-                if (errorNode.has("message")) {
-                    return "Error: " + errorNode.get("message").asText();
-                } else if (errorNode.has("error")) {
-                    return "Error: " + errorNode.get("error").asText();
-                }
-            } catch (Exception e) {
-                // If can't parse as JSON, return raw response with Error prefix
-                return "Error: " + response;
-            }
-        }
+    /**
+     * Sends an encoded ISO message to the parser endpoint without copying it
+     * @param isoMessage Buffer holding the message between its position and limit
+     * @return The parsed response
+     */
+    public static String sendIsoMessageToParser(ByteBuffer isoMessage) throws IOException {
+        return await(postIsoMessageAsync(PARSER_URL, isoMessage));
+    }
 
-        return response.toString();
+    /**
+     * Sends an ISO message to the parser endpoint without blocking
+     * @param isoMessage The ISO message to parse
+     * @return A future for the parsed response
+     */
+    public static CompletableFuture<String> sendIsoMessageToParserAsync(String isoMessage) {
+        return postIsoMessageAsync(PARSER_URL, ByteBuffer.wrap(isoMessage.getBytes(StandardCharsets.UTF_8)));
     }
 
     /**
@@ -76,60 +78,333 @@ public class IsoMessageTransport {
      * @return The canonical JSON response
      */
     public static String sendIsoMessageToCanonical(String isoMessage) throws IOException {
-        URL url = new URL(CANONICAL_URL);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Content-Type", "text/plain");
-        connection.setDoOutput(true);
-
-        // Send the request
-        try (OutputStream os = connection.getOutputStream()) {
-            byte[] input = isoMessage.getBytes(StandardCharsets.UTF_8);
-            os.write(input, 0, input.length);
-        }
-
-        // Get response code
-        int responseCode = connection.getResponseCode();
-        StringBuilder response = new StringBuilder();
-
-        // Use error stream for 400 responses, input stream for successful responses
-        try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(responseCode == 400
-                        ? connection.getErrorStream()
-                        : connection.getInputStream(), StandardCharsets.UTF_8))) {
-            String responseLine;
-            while ((responseLine = br.readLine()) != null) {
-                response.append(responseLine.trim());
-            }
+        return await(sendIsoMessageToCanonicalAsync(isoMessage));
+    }
+
+    /**
+     * Sends an encoded ISO8583 message to the canonical endpoint without copying it.
+     * The response is not cached, since the cache is keyed by the message text.
+     * @param isoMessage Buffer holding the message between its position and limit
+     * @return The canonical JSON response
+     */
+    public static String sendIsoMessageToCanonical(ByteBuffer isoMessage) throws IOException {
+        return await(postIsoMessageAsync(CANONICAL_URL, isoMessage));
+    }
+
+    /**
+     * Sends an ISO8583 message to the canonical endpoint without blocking
+     * @param isoMessage The ISO8583 message to convert to canonical form
+     * @return A future for the canonical JSON response
+     */
+    public static CompletableFuture<String> sendIsoMessageToCanonicalAsync(String isoMessage) {
+        IsoConfigCache.ConfigSnapshot snapshot = CreateIsoMessage.configSnapshot;
+        String cached = IsoCanonicalCache.get(snapshot, isoMessage);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
         }
+        return fetchCanonicalAsync(isoMessage).thenApply(reply -> {
+            IsoCanonicalCache.put(snapshot, isoMessage, reply.statusCode, reply.body);
+            return reply.body;
+        });
+    }
 
-        // For 400 responses, try to parse the error message
-        if (responseCode == 400) {
-            try {
-                JsonNode errorNode = objectMapper.readTree(response.toString());
-                if (errorNode.has("message")) {
-                    return "Error: " + errorNode.get("message").asText();
-                } else if (errorNode.has("error")) {
-                    return "Error: " + errorNode.get("error").asText();
+    /**
+     * Converts several ISO8583 messages to canonical form in a single request
+     * @param isoMessages The messages to convert
+     * @return The canonical JSON responses, in the same order as the messages
+     */
+    public static List<String> sendIsoMessagesToCanonical(List<String> isoMessages) throws IOException {
+        return await(sendIsoMessagesToCanonicalAsync(isoMessages, null));
+    }
+
+    /**
+     * Converts several ISO8583 messages to canonical form, posting single requests straight from their encoded bytes
+     * @param isoMessages The messages to convert, used for the cache key and batch requests
+     * @param encoded The same messages encoded by {@link IsoMessageEncoder}; must not be reused until this returns
+     * @return The canonical JSON responses, in the same order as the messages
+     */
+    public static List<String> sendIsoMessagesToCanonical(List<String> isoMessages, List<ByteBuffer> encoded) throws IOException {
+        return await(sendIsoMessagesToCanonicalAsync(isoMessages, encoded));
+    }
+
+    /**
+     * Converts several ISO8583 messages to canonical form without blocking.
+     * The messages are posted as one JSON array to the batch endpoint and the response array is
+     * split back out per message. If the service does not support batches, the messages are sent
+     * as concurrent single requests instead, and later calls go straight to single requests.
+     * Messages already in the canonical cache are not sent.
+     * @param isoMessages The messages to convert
+     * @return A future for the canonical JSON responses, in the same order as the messages
+     */
+    public static CompletableFuture<List<String>> sendIsoMessagesToCanonicalAsync(List<String> isoMessages) {
+        return sendIsoMessagesToCanonicalAsync(isoMessages, null);
+    }
+
+    private static CompletableFuture<List<String>> sendIsoMessagesToCanonicalAsync(List<String> isoMessages, List<ByteBuffer> encoded) {
+        if (!IsoCanonicalCache.isEnabled()) {
+            return postBatchToCanonicalAsync(isoMessages, encoded).thenApply(IsoMessageTransport::bodiesOf);
+        }
+
+        IsoConfigCache.ConfigSnapshot snapshot = CreateIsoMessage.configSnapshot;
+        String[] results = new String[isoMessages.size()];
+        List<Integer> missIndexes = new ArrayList<>();
+        List<String> misses = new ArrayList<>();
+        List<ByteBuffer> encodedMisses = encoded != null ? new ArrayList<>() : null;
+        for (int i = 0; i < results.length; i++) {
+            results[i] = IsoCanonicalCache.get(snapshot, isoMessages.get(i));
+            if (results[i] == null) {
+                missIndexes.add(i);
+                misses.add(isoMessages.get(i));
+                if (encodedMisses != null) {
+                    encodedMisses.add(encoded.get(i));
                 }
-            } catch (Exception e) {
-                return "Error: " + response;
             }
         }
 
+        return postBatchToCanonicalAsync(misses, encodedMisses).thenApply(replies -> {
+            for (int i = 0; i < replies.size(); i++) {
+                Reply reply = replies.get(i);
+                results[missIndexes.get(i)] = reply.body;
+                IsoCanonicalCache.put(snapshot, misses.get(i), reply.statusCode, reply.body);
+            }
+            return Arrays.asList(results);
+        });
+    }
+
+    private static CompletableFuture<List<Reply>> postBatchToCanonicalAsync(List<String> isoMessages, List<ByteBuffer> encoded) {
+        if (isoMessages.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        if (isoMessages.size() == 1 || !canonicalBatchSupported) {
+            return sendEachToCanonicalAsync(isoMessages, encoded);
+        }
+
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(CANONICAL_BATCH_URL))
+                    .timeout(HTTP_REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(isoMessages)))
+                    .build();
+        } catch (IllegalArgumentException | IOException e) {
+            System.out.println("Warning: Canonical batch endpoint unavailable (" + e.getMessage() + "), sending messages individually");
+            canonicalBatchSupported = false;
+            return sendEachToCanonicalAsync(isoMessages, encoded);
+        }
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .thenCompose(response -> {
+                    int responseCode = response.statusCode();
+                    if (responseCode == 404 || responseCode == 405 || responseCode == 415 || responseCode == 501) {
+                        System.out.println("Warning: Canonical service does not support batches (HTTP " + responseCode + "), sending messages individually");
+                        canonicalBatchSupported = false;
+                        return sendEachToCanonicalAsync(isoMessages, encoded);
+                    }
+                    if (responseCode == 400) {
+                        // One bad message fails the whole batch; resend individually to get per-message errors
+                        return sendEachToCanonicalAsync(isoMessages, encoded);
+                    }
+                    if (responseCode >= 300) {
+                        return CompletableFuture.failedFuture(new IOException(
+                                "Server returned HTTP response code: " + responseCode + " for URL: " + CANONICAL_BATCH_URL));
+                    }
+                    try {
+                        List<Reply> replies = new ArrayList<>(isoMessages.size());
+                        splitBatchResponse(response.body(), isoMessages.size()).forEach(body -> replies.add(new Reply(responseCode, body)));
+                        return CompletableFuture.completedFuture(replies);
+                    } catch (IOException e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                });
+    }
+
+    private static CompletableFuture<List<Reply>> sendEachToCanonicalAsync(List<String> isoMessages, List<ByteBuffer> encoded) {
+        List<CompletableFuture<Reply>> responses = new ArrayList<>(isoMessages.size());
+        for (int i = 0; i < isoMessages.size(); i++) {
+            responses.add(encoded != null ? postAsync(CANONICAL_URL, encoded.get(i)) : fetchCanonicalAsync(isoMessages.get(i)));
+        }
+        return CompletableFuture.allOf(responses.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> {
+                    List<Reply> results = new ArrayList<>(responses.size());
+                    responses.forEach(response -> results.add(response.join()));
+                    return results;
+                });
+    }
+
+    private static CompletableFuture<Reply> fetchCanonicalAsync(String isoMessage) {
+        return postAsync(CANONICAL_URL, ByteBuffer.wrap(isoMessage.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static List<String> bodiesOf(List<Reply> replies) {
+        List<String> bodies = new ArrayList<>(replies.size());
+        replies.forEach(reply -> bodies.add(reply.body));
+        return bodies;
+    }
+
+    private static List<String> splitBatchResponse(String body, int expectedSize) throws IOException {
+        JsonNode responseArray = objectMapper.readTree(body);
+        if (!responseArray.isArray() || responseArray.size() != expectedSize) {
+            throw new IOException("Canonical batch response should be an array of " + expectedSize + " elements");
+        }
+        List<String> results = new ArrayList<>(expectedSize);
+        for (JsonNode element : responseArray) {
+            results.add(element.isTextual() ? element.asText() : objectMapper.writeValueAsString(element));
+        }
+        return results;
+    }
+
+    /**
+     * Posts a message body on the shared client, turning 400 responses into "Error: ..." strings
+     */
+    private static CompletableFuture<String> postIsoMessageAsync(String endpoint, ByteBuffer body) {
+        return postAsync(endpoint, body).thenApply(reply -> reply.body);
+    }
+
+    /**
+     * Posts a message body like {@link #postIsoMessageAsync}, keeping the HTTP status with the response
+     */
+    private static CompletableFuture<Reply> postAsync(String endpoint, ByteBuffer body) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(endpoint))
+                    .timeout(HTTP_REQUEST_TIMEOUT)
+                    .header("Content-Type", "text/plain")
+                    .POST(bodyOf(body))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new IOException("Invalid endpoint URL: " + endpoint, e));
+        }
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .thenApply(response -> {
+                    int responseCode = response.statusCode();
+                    String responseBody = joinTrimmedLines(response.body());
+
+                    // For 400 responses, try to parse the error message
+                    if (responseCode == 400) {
+                        return new Reply(responseCode, toErrorMessage(responseBody));
+                    }
+                    if (responseCode >= 300) {
+                        throw new CompletionException(new IOException(
+                                "Server returned HTTP response code: " + responseCode + " for URL: " + endpoint));
+                    }
+                    return new Reply(responseCode, responseBody);
+                });
+    }
+
+    /**
+     * Wraps the buffer's backing array without copying it when there is one
+     */
+    private static HttpRequest.BodyPublisher bodyOf(ByteBuffer body) {
+        if (body.hasArray()) {
+            return HttpRequest.BodyPublishers.ofByteArray(body.array(), body.arrayOffset() + body.position(), body.remaining());
+        }
+        byte[] bytes = new byte[body.remaining()];
+        body.duplicate().get(bytes);
+        return HttpRequest.BodyPublishers.ofByteArray(bytes);
+    }
+
+    /**
+     * Trims every line and joins them, the way the responses have always been read
+     */
+    private static String joinTrimmedLines(String body) {
+        if (body.indexOf('\n') < 0 && body.indexOf('\r') < 0) {
+            return body.trim();
+        }
+        StringBuilder response = new StringBuilder(body.length());
+        body.lines().forEach(line -> response.append(line.trim()));
         return response.toString();
     }
 
+    private static String toErrorMessage(String response) {
+        try {
+            JsonNode errorNode = objectMapper.readTree(response);
+            if (errorNode.has("message")) {
+                return "Error: " + errorNode.get("message").asText();
+            } else if (errorNode.has("error")) {
+                return "Error: " + errorNode.get("error").asText();
+            }
+        } catch (Exception e) {
+            // If can't parse as JSON, return raw response with Error prefix
+            return "Error: " + response;
+        }
+        return response;
+    }
+
+    /**
+     * Waits for an HTTP future, unwrapping its failure
+     */
+    private static <T> T await(CompletableFuture<T> response) throws IOException {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause != null ? cause.getMessage() : e.getMessage(), cause);
+        }
+    }
+
+    /**
+     * A response body and the HTTP status it came with, so a 400 turned into text is never mistaken for a result
+     */
+    private static final class Reply {
+        final int statusCode;
+        final String body;
+
+        Reply(int statusCode, String body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+    }
+
     /**
      * Sends a message via WebSocket and returns the response
      * @param message The message to send
      * @return The WebSocket response
      */
     public static String sendWebSocketMessage(String message) throws Exception {
-        WebSocketManager.init(WS_URL);
-        WebSocketManager.sendMessage(message);
-        String wsResponse = WebSocketClient.getResponseMessage();
-        WebSocketManager.close();
-        return wsResponse;
+        try {
+            return sendWebSocketMessageAsync(message).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Sends a message over the shared WebSocket session without waiting for the response.
+     * Up to iso.ws.window messages are pipelined; beyond that the caller blocks until a response frees a slot.
+     * Spreadsheet runs only fill the window with iso.canonical.batchSize or iso.rows.workers above 1.
+     * @param message The message to send
+     * @return A future completed by the response carrying the same MTI class, STAN and RRN
+     */
+    public static CompletableFuture<String> sendWebSocketMessageAsync(String message) throws Exception {
+        return webSocketSession().sendRequest(message, WS_RESPONSE_TIMEOUT);
+    }
+
+    /**
+     * Closes the shared WebSocket session; the next send opens a new one
+     */
+    public static synchronized void closeWebSocketSession() {
+        if (webSocketSession != null) {
+            webSocketSession.close();
+            webSocketSession = null;
+        }
+    }
+
+    /**
+     * Gets the shared WebSocket session, connecting (or reconnecting) if needed
+     */
+    private static synchronized IsoWebSocketSession webSocketSession() throws Exception {
+        if (webSocketSession == null || !webSocketSession.isOpen()) {
+            IsoWebSocketSession session = new IsoWebSocketSession(new URI(WS_URL),
+                    message -> IsoCorrelationKey.of(message, CreateIsoMessage.fieldPlan), WS_WINDOW);
+            if (!session.open(WS_CONNECT_TIMEOUT)) {
+                throw new IOException("Unable to connect to WebSocket server " + WS_URL);
+            }
+            webSocketSession = session;
+        }
+        return webSocketSession;
     }
-} 
\ No newline at end of file
+}
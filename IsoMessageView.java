@@ -0,0 +1,282 @@
+package utilities;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Lazy, offset-indexed view over a raw ISO8583 message.
+ * The MTI and bitmaps are decoded up front; field offsets are only worked out as far as
+ * the highest field asked for, and field values are only turned into Strings on request.
+ * Slices of the underlying chars (or bytes) can be handed out without copying.
+ * A view is not thread-safe.
+ */
+public final class IsoMessageView {
+    private static final int MTI_LENGTH = 4;
+    private static final int BITMAP_LENGTH = 16;
+
+    private final CharSequence message;
+    private final byte[] bytes;
+    private final int byteOffset;
+    private final IsoFieldPlan plan;
+    private final IsoBitmap bitmap;
+
+    // Offset table, -1 until the field has been indexed
+    private final int[] starts = new int[IsoFieldPlan.MAX_FIELD + 1];
+    private final int[] lengths = new int[IsoFieldPlan.MAX_FIELD + 1];
+    private int indexedUpTo;
+    private int scanPos;
+
+    private IsoMessageView(CharSequence message, byte[] bytes, int byteOffset, IsoFieldPlan plan) {
+        this.message = message;
+        this.bytes = bytes;
+        this.byteOffset = byteOffset;
+        this.plan = plan;
+        Arrays.fill(starts, -1);
+
+        if (message == null || message.length() < MTI_LENGTH) {
+            throw new IllegalArgumentException("Cannot parse ISO message: message is shorter than an MTI");
+        }
+        starts[0] = 0;
+        lengths[0] = MTI_LENGTH;
+        int pos = MTI_LENGTH;
+
+        // A message without data elements carries no bitmap at all
+        long primaryWord = 0L;
+        long secondaryWord = 0L;
+        if (pos < message.length()) {
+            primaryWord = readBitmap(pos);
+            pos += BITMAP_LENGTH;
+            if (IsoHexCodec.isBitSet(primaryWord, 1, 64)) {
+                secondaryWord = readBitmap(pos);
+                pos += BITMAP_LENGTH;
+            }
+        }
+        this.bitmap = IsoBitmap.fromWords(primaryWord, secondaryWord);
+        // Field 1 only flags the secondary bitmap, which has already been read
+        this.indexedUpTo = 1;
+        this.scanPos = pos;
+    }
+
+    /**
+     * Creates a view over a message held as text
+     * @param message The raw ISO message
+     * @param plan The compiled field configuration
+     * @throws IllegalArgumentException if the MTI or bitmaps cannot be read
+     */
+    public static IsoMessageView of(CharSequence message, IsoFieldPlan plan) {
+        return new IsoMessageView(message, null, 0, plan);
+    }
+
+    /**
+     * Creates a view over an ASCII encoded message held in a byte array
+     * @param bytes The array holding the message
+     * @param offset The position of the first byte of the message
+     * @param length The number of bytes in the message
+     * @param plan The compiled field configuration
+     * @throws IllegalArgumentException if the MTI or bitmaps cannot be read
+     */
+    public static IsoMessageView of(byte[] bytes, int offset, int length, IsoFieldPlan plan) {
+        return new IsoMessageView(new AsciiSequence(bytes, offset, length), bytes, offset, plan);
+    }
+
+    /**
+     * Gets the bitmap of fields present in the message
+     */
+    public IsoBitmap getBitmap() {
+        return bitmap;
+    }
+
+    /**
+     * Gets the message type indicator
+     */
+    public String getMti() {
+        return message.subSequence(0, MTI_LENGTH).toString();
+    }
+
+    /**
+     * Checks if a data element is present
+     * @param fieldNumber The DE number (1-128)
+     */
+    public boolean has(int fieldNumber) {
+        return fieldNumber > 1 && bitmap.isSet(fieldNumber);
+    }
+
+    /**
+     * Gets the value of a data element, without its length prefix
+     * @param fieldNumber The DE number, 0 for the MTI
+     * @return The value, or null if the field is not present
+     * @throws IllegalArgumentException if the message does not match the configuration
+     */
+    public String get(int fieldNumber) {
+        CharSequence slice = slice(fieldNumber);
+        return slice != null ? slice.toString() : null;
+    }
+
+    /**
+     * Gets the chars of a data element as a view over the message, without copying
+     * @param fieldNumber The DE number, 0 for the MTI
+     * @return The slice, or null if the field is not present
+     */
+    public CharSequence slice(int fieldNumber) {
+        if (!locate(fieldNumber)) {
+            return null;
+        }
+        int start = starts[fieldNumber];
+        return CharBuffer.wrap(message, start, start + lengths[fieldNumber]);
+    }
+
+    /**
+     * Gets the bytes of a data element as a read-only view over the source array, without copying
+     * @param fieldNumber The DE number, 0 for the MTI
+     * @return The slice, or null if the field is not present
+     * @throws IllegalStateException if the view was not created over a byte array
+     */
+    public ByteBuffer byteSlice(int fieldNumber) {
+        if (bytes == null) {
+            throw new IllegalStateException("Message view was not created over a byte array");
+        }
+        if (!locate(fieldNumber)) {
+            return null;
+        }
+        return ByteBuffer.wrap(bytes, byteOffset + starts[fieldNumber], lengths[fieldNumber]).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets the offset of a data element's value within the message
+     * @return The offset, or -1 if the field is not present
+     */
+    public int offsetOf(int fieldNumber) {
+        return locate(fieldNumber) ? starts[fieldNumber] : -1;
+    }
+
+    /**
+     * Gets the length of a data element's value
+     * @return The length, or -1 if the field is not present
+     */
+    public int lengthOf(int fieldNumber) {
+        return locate(fieldNumber) ? lengths[fieldNumber] : -1;
+    }
+
+    /**
+     * Materializes every present field
+     * @return Field values keyed by DE number, 0 being the MTI
+     */
+    public Map<Integer, String> toMap() {
+        Map<Integer, String> fields = new TreeMap<>();
+        fields.put(0, getMti());
+        for (int field = bitmap.nextSetField(2); field != -1; field = bitmap.nextSetField(field + 1)) {
+            fields.put(field, get(field));
+        }
+        return fields;
+    }
+
+    private boolean locate(int fieldNumber) {
+        if (fieldNumber == 0) {
+            return true;
+        }
+        if (!has(fieldNumber)) {
+            return false;
+        }
+        if (fieldNumber > indexedUpTo) {
+            indexTo(fieldNumber);
+        }
+        return true;
+    }
+
+    /**
+     * Walks the fields after the last indexed one up to the given field, recording offsets only
+     */
+    private void indexTo(int target) {
+        int pos = scanPos;
+        for (int field = bitmap.nextSetField(indexedUpTo + 1); field != -1 && field <= target;
+             field = bitmap.nextSetField(field + 1)) {
+            IsoFieldPlan.FieldDescriptor descriptor = plan.get(field);
+            if (descriptor == null) {
+                throw new IllegalArgumentException("Cannot parse ISO message: DE " + field + " is present but not configured");
+            }
+
+            int digits = descriptor.getEncoder().prefixDigits();
+            int length;
+            if (digits > 0) {
+                length = readLength(pos, digits, field);
+                pos += digits;
+            } else {
+                length = descriptor.getFixedLength();
+                if (length <= 0) {
+                    throw new IllegalArgumentException("Cannot parse ISO message: DE " + field + " has no configured length");
+                }
+            }
+
+            if (pos + length > message.length()) {
+                throw new IllegalArgumentException("Cannot parse ISO message: DE " + field + " runs past the end of the message");
+            }
+            starts[field] = pos;
+            lengths[field] = length;
+            pos += length;
+            indexedUpTo = field;
+            scanPos = pos;
+        }
+        indexedUpTo = Math.max(indexedUpTo, target);
+    }
+
+    private long readBitmap(int pos) {
+        if (pos + BITMAP_LENGTH > message.length()) {
+            throw new IllegalArgumentException("Cannot parse ISO message: bitmap truncated at offset " + pos);
+        }
+        return IsoHexCodec.parseHex(message, pos, BITMAP_LENGTH);
+    }
+
+    private int readLength(int pos, int digits, int field) {
+        if (pos + digits > message.length()) {
+            throw new IllegalArgumentException("Cannot parse ISO message: length prefix of DE " + field + " is truncated");
+        }
+        int length = 0;
+        for (int i = pos; i < pos + digits; i++) {
+            int digit = message.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Cannot parse ISO message: invalid length prefix for DE " + field);
+            }
+            length = length * 10 + digit;
+        }
+        return length;
+    }
+
+    /**
+     * Read-only char view over ASCII bytes
+     */
+    private static final class AsciiSequence implements CharSequence {
+        private final byte[] bytes;
+        private final int offset;
+        private final int length;
+
+        AsciiSequence(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes[offset + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new AsciiSequence(bytes, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
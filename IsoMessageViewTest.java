@@ -0,0 +1,120 @@
+package utilities;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static utilities.IsoBitmapManager.*;
+
+/**
+ * Builds messages with CreateIsoMessage.buildIsoMessage and reads them back with IsoMessageView
+ */
+public class IsoMessageViewTest {
+    private static final String CONFIG = "{"
+            + "\"MTI\": {\"name\": \"Message Type Indicator\", \"type\": \"numeric\", \"format\": \"fixed\", \"length\": 4},"
+            + "\"2\": {\"name\": \"Primary Account Number (PAN)\", \"type\": \"numeric\", \"format\": \"llvar\", \"max_length\": 19},"
+            + "\"3\": {\"name\": \"Processing Code\", \"type\": \"numeric\", \"format\": \"fixed\", \"length\": 6},"
+            + "\"11\": {\"name\": \"System Trace Audit Number\", \"type\": \"numeric\", \"format\": \"fixed\", \"length\": 6},"
+            + "\"37\": {\"name\": \"Retrieval Reference Number\", \"type\": \"alphanumeric\", \"format\": \"fixed\", \"length\": 12},"
+            + "\"52\": {\"name\": \"Personal Identification Number (PIN) Data\", \"type\": \"binary\", \"format\": \"fixed\", \"length\": 64},"
+            + "\"55\": {\"name\": \"ICC Data\", \"type\": \"binary\", \"format\": \"lllvar\", \"max_length\": 255},"
+            + "\"96\": {\"name\": \"Message Security Code\", \"type\": \"binary\", \"format\": \"fixed\", \"length\": 64},"
+            + "\"100\": {\"name\": \"Receiving Institution ID Code\", \"type\": \"numeric\", \"format\": \"llvar\", \"max_length\": 11},"
+            + "\"128\": {\"name\": \"Message Authenticate Code\", \"type\": \"binary\", \"format\": \"fixed\", \"length\": 64}"
+            + "}";
+    private static final String PIN_BLOCK = "0011111100000111000000011011100011100001011010000001111111011100";
+    private static final String MAC = "1000001000111010101001100101011001000111100000000010110110100011";
+
+    private IsoFieldPlan savedPlan;
+    private IsoFieldPlan plan;
+
+    @Before
+    public void setUp() throws Exception {
+        Map<String, JsonNode> config = new LinkedHashMap<>();
+        new ObjectMapper().readTree(CONFIG).fields().forEachRemaining(e -> config.put(e.getKey(), e.getValue()));
+        plan = IsoFieldPlan.compile(config);
+        savedPlan = CreateIsoMessage.fieldPlan;
+        CreateIsoMessage.fieldPlan = plan;
+        CreateIsoMessage.isoFields().clear();
+        resetBitmaps();
+    }
+
+    @After
+    public void tearDown() {
+        CreateIsoMessage.fieldPlan = savedPlan;
+        CreateIsoMessage.isoFields().clear();
+        resetBitmaps();
+    }
+
+    @Test
+    public void binaryFieldsKeepLaterFieldsAligned() {
+        put(0, "0100");
+        put(2, "5314451120000000");
+        put(11, "130644");
+        put(37, "021700130644");
+        put(52, PIN_BLOCK);
+        put(55, "0101");
+
+        IsoMessageView view = IsoMessageView.of(CreateIsoMessage.buildIsoMessage(), plan);
+
+        assertEquals("0100", view.getMti());
+        assertEquals("5314451120000000", view.get(2));
+        assertEquals("130644", view.get(11));
+        assertEquals("021700130644", view.get(37));
+        assertEquals(PIN_BLOCK, view.get(52));
+        assertEquals("0101", view.get(55));
+        assertNull(view.get(3));
+    }
+
+    @Test
+    public void binaryFieldsInSecondaryBitmapRoundTrip() {
+        put(0, "0200");
+        put(3, "000000");
+        put(52, PIN_BLOCK);
+        put(96, PIN_BLOCK);
+        put(100, "12345");
+        put(128, MAC);
+
+        String message = CreateIsoMessage.buildIsoMessage();
+        IsoMessageView view = IsoMessageView.of(message, plan);
+
+        assertTrue(view.getBitmap().hasSecondaryFields());
+        assertEquals("000000", view.get(3));
+        assertEquals(PIN_BLOCK, view.get(52));
+        assertEquals(PIN_BLOCK, view.get(96));
+        assertEquals("12345", view.get(100));
+        assertEquals(MAC, view.get(128));
+
+        Map<Integer, String> fields = view.toMap();
+        assertEquals(CreateIsoMessage.isoFields(), fields);
+    }
+
+    @Test
+    public void byteViewMatchesTextView() {
+        put(0, "0100");
+        put(11, "000123");
+        put(52, PIN_BLOCK);
+        put(128, MAC);
+
+        byte[] bytes = CreateIsoMessage.buildIsoMessage().getBytes(StandardCharsets.US_ASCII);
+        IsoMessageView view = IsoMessageView.of(bytes, 0, bytes.length, plan);
+
+        assertEquals("000123", view.get(11));
+        assertEquals(PIN_BLOCK, view.get(52));
+        assertEquals(MAC, view.get(128));
+    }
+
+    private static void put(int field, String value) {
+        CreateIsoMessage.isoFields().put(field, value);
+        if (field > 0) {
+            setBit(field);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package utilities;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs spreadsheet row tasks on a worker pool and hands each result back to the submitting
+ * thread in submission order. The submitting thread is the only one that writes results, so
+ * it can own a non thread-safe workbook. At most twice as many tasks as workers are in flight,
+ * which bounds how far reading runs ahead of writing.
+ * Workers are virtual threads when the JDK has them (and iso.rows.virtualThreads is not false),
+ * otherwise a fixed pool of daemon threads.
+ */
+final class IsoRowEngine<I, O> implements AutoCloseable {
+    private final ExecutorService executor;
+    private final Function<I, O> task;
+    private final Consumer<O> writer;
+    private final int maxInFlight;
+    private final Deque<Future<O>> inFlight = new ArrayDeque<>();
+
+    /**
+     * @param workers The number of rows processed concurrently
+     * @param task Processes one input on a worker thread
+     * @param writer Consumes each result on the submitting thread, in submission order
+     */
+    IsoRowEngine(int workers, Function<I, O> task, Consumer<O> writer) {
+        this.executor = newExecutor(Math.max(1, workers));
+        this.task = task;
+        this.writer = writer;
+        this.maxInFlight = Math.max(1, workers) * 2;
+    }
+
+    /**
+     * Queues an input, first writing finished results while the in-flight limit is reached
+     */
+    void submit(I input) throws IOException {
+        while (inFlight.size() >= maxInFlight) {
+            writeNext();
+        }
+        inFlight.add(executor.submit(() -> task.apply(input)));
+    }
+
+    /**
+     * Waits for every queued input and writes the remaining results
+     */
+    void finish() throws IOException {
+        while (!inFlight.isEmpty()) {
+            writeNext();
+        }
+    }
+
+    @Override
+    public void close() {
+        inFlight.forEach(pending -> pending.cancel(true));
+        inFlight.clear();
+        executor.shutdownNow();
+    }
+
+    private void writeNext() throws IOException {
+        O result;
+        try {
+            result = inFlight.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for row results", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Row processing failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        writer.accept(result);
+    }
+
+    private static ExecutorService newExecutor(int workers) {
+        if (workers > 1 && !"false".equalsIgnoreCase(System.getProperty("iso.rows.virtualThreads"))) {
+            try {
+                // JDK 21+; concurrency is still capped by the in-flight limit
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Older JDK: fall back to platform threads
+            }
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "iso-row-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
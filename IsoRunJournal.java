@@ -0,0 +1,232 @@
+package utilities;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import static utilities.ValidationResultManager.*;
+
+/**
+ * Append-only checkpoint journal of a spreadsheet run. Each completed row is written as one JSON line
+ * (ISO message, DE39 response and field results) and flushed straight away, so a run that dies partway
+ * can be resumed without sending the finished rows again. The first line records the config fingerprint;
+ * a journal written under a different config is not resumed from.
+ * A line cut short by a crash is ignored, and that row is simply processed again.
+ */
+final class IsoRunJournal implements Closeable {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String FORMAT = "iso-run-journal";
+
+    private final Path path;
+    private final BufferedWriter writer;
+
+    private IsoRunJournal(Path path, BufferedWriter writer) {
+        this.path = path;
+        this.writer = writer;
+    }
+
+    /**
+     * Gets the journal kept alongside an output workbook
+     */
+    static Path pathFor(String outputPath) {
+        return Path.of(outputPath + ".journal");
+    }
+
+    /**
+     * Opens a journal for writing
+     * @param path The journal file
+     * @param configFingerprint The fingerprint of the config the run validates with
+     * @param append True to keep the rows already recorded, false to start a new journal.
+     *               A line left unfinished by a crash is cut off first so new rows start on a line of their own.
+     */
+    static IsoRunJournal open(Path path, String configFingerprint, boolean append) throws IOException {
+        if (append && Files.exists(path) && truncateIncompleteLine(path)) {
+            return new IsoRunJournal(path, Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.APPEND));
+        }
+
+        BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        ObjectNode header = objectMapper.createObjectNode();
+        header.put("journal", FORMAT);
+        header.put("config", configFingerprint);
+        writer.write(objectMapper.writeValueAsString(header));
+        writer.newLine();
+        writer.flush();
+        return new IsoRunJournal(path, writer);
+    }
+
+    /**
+     * Reads the rows recorded by an earlier run
+     * @param path The journal file
+     * @param configFingerprint The fingerprint of the config the run validates with
+     * @return The recorded rows by 0-based row index; empty if there is no usable journal
+     */
+    static Map<Integer, Entry> load(Path path, String configFingerprint) throws IOException {
+        Map<Integer, Entry> entries = new HashMap<>();
+        if (!Files.exists(path)) {
+            return entries;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            JsonNode header = line != null ? readLine(line) : null;
+            if (header == null || !FORMAT.equals(header.path("journal").asText())) {
+                System.out.println("Warning: " + path + " is not a run journal; starting from the first row");
+                return entries;
+            }
+            if (!configFingerprint.equals(header.path("config").asText())) {
+                System.out.println("Warning: " + path + " was written with a different config; starting from the first row");
+                return entries;
+            }
+
+            while ((line = reader.readLine()) != null) {
+                JsonNode node = readLine(line);
+                if (node == null) {
+                    System.out.println("Warning: Ignoring incomplete journal line in " + path);
+                    continue;
+                }
+                Entry entry = Entry.fromJson(node);
+                entries.put(entry.rowIndex, entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Appends a completed row and flushes it to the file
+     */
+    void record(Entry entry) throws IOException {
+        writer.write(objectMapper.writeValueAsString(entry.toJson()));
+        writer.newLine();
+        writer.flush();
+    }
+
+    /**
+     * Closes and removes the journal once its rows are safely in the output workbook
+     */
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Truncates the file just after its last newline
+     * @return false if the file holds no complete line, not even the header
+     */
+    private static boolean truncateIncompleteLine(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            long end = channel.size();
+            while (end > 0) {
+                int chunk = (int) Math.min(buffer.capacity(), end);
+                long chunkStart = end - chunk;
+                buffer.clear().limit(chunk);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, chunkStart + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                for (int i = chunk - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        channel.truncate(chunkStart + i + 1);
+                        return true;
+                    }
+                }
+                end = chunkStart;
+            }
+            return false;
+        }
+    }
+
+    private static JsonNode readLine(String line) {
+        try {
+            return line.isBlank() ? null : objectMapper.readTree(line);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * One completed row: what was sent, what came back and how it validated
+     */
+    static final class Entry {
+        final int rowIndex;
+        final String isoMessage;
+        final int responseColumn;
+        final String responseText;
+        final ValidationResult validationResult;
+
+        Entry(int rowIndex, String isoMessage, int responseColumn, String responseText, ValidationResult validationResult) {
+            this.rowIndex = rowIndex;
+            this.isoMessage = isoMessage;
+            this.responseColumn = responseColumn;
+            this.responseText = responseText;
+            this.validationResult = validationResult;
+        }
+
+        private ObjectNode toJson() {
+            ObjectNode node = objectMapper.createObjectNode();
+            node.put("row", rowIndex);
+            node.put("message", isoMessage);
+            if (responseText != null) {
+                node.put("responseColumn", responseColumn);
+                node.put("response", responseText);
+            }
+            ArrayNode fields = node.putArray("fields");
+            validationResult.getResults().forEach((de, result) -> {
+                ObjectNode field = fields.addObject();
+                field.put("de", de);
+                field.put("status", result.getStatus().name());
+                field.put("expected", result.getExpected());
+                field.put("actual", result.getActual());
+            });
+            return node;
+        }
+
+        private static Entry fromJson(JsonNode node) {
+            ValidationResult validationResult = new ValidationResult();
+            for (JsonNode field : node.path("fields")) {
+                String de = field.path("de").asText();
+                String expected = field.path("expected").isNull() ? null : field.path("expected").asText();
+                String actual = field.path("actual").isNull() ? null : field.path("actual").asText();
+                switch (FieldStatus.valueOf(field.path("status").asText())) {
+                    case PASSED:
+                        validationResult.addPassedField(de, expected, actual);
+                        break;
+                    case FAILED:
+                        validationResult.addFailedField(de, expected, actual);
+                        break;
+                    case SKIPPED:
+                        validationResult.addSkippedField(de, expected, actual);
+                        break;
+                }
+            }
+            return new Entry(node.path("row").asInt(), node.path("message").asText(),
+                    node.path("responseColumn").asInt(), node.has("response") ? node.path("response").asText() : null,
+                    validationResult);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package utilities;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static utilities.ValidationResultManager.*;
+
+/**
+ * Records rows with IsoRunJournal and reads them back, including journals cut short by a crash
+ */
+public class IsoRunJournalTest {
+    private static final String CONFIG = "config-fingerprint";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void loadReturnsRecordedRows() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("run.journal");
+        writeRows(path, 0, 1);
+
+        Map<Integer, IsoRunJournal.Entry> entries = IsoRunJournal.load(path, CONFIG);
+
+        assertEquals(2, entries.size());
+        IsoRunJournal.Entry entry = entries.get(1);
+        assertEquals("0100message1", entry.isoMessage);
+        assertEquals(91, entry.responseColumn);
+        assertEquals("00 - Approved", entry.responseText);
+        assertEquals(FieldStatus.PASSED, entry.validationResult.getResults().get("4").getStatus());
+        assertEquals(FieldStatus.FAILED, entry.validationResult.getResults().get("11").getStatus());
+        assertEquals("000123", entry.validationResult.getResults().get("11").getExpected());
+    }
+
+    @Test
+    public void loadIgnoresTruncatedTail() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("run.journal");
+        writeRows(path, 0, 1);
+        Files.write(path, "{\"row\":2,\"message\":\"01".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        Map<Integer, IsoRunJournal.Entry> entries = IsoRunJournal.load(path, CONFIG);
+
+        assertEquals(2, entries.size());
+        assertTrue(entries.containsKey(0));
+        assertTrue(entries.containsKey(1));
+    }
+
+    @Test
+    public void appendAfterTruncatedTailStartsOnNewLine() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("run.journal");
+        writeRows(path, 0, 1);
+        Files.write(path, "{\"row\":2,\"message\":\"01".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (IsoRunJournal journal = IsoRunJournal.open(path, CONFIG, true)) {
+            journal.record(entry(2));
+        }
+        Map<Integer, IsoRunJournal.Entry> entries = IsoRunJournal.load(path, CONFIG);
+
+        assertEquals(3, entries.size());
+        assertEquals("0100message2", entries.get(2).isoMessage);
+        assertEquals(4, Files.readAllLines(path, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    public void appendToJournalWithoutCompleteHeaderStartsOver() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("run.journal");
+        Files.write(path, "{\"journal\":\"iso-run".getBytes(StandardCharsets.UTF_8));
+
+        try (IsoRunJournal journal = IsoRunJournal.open(path, CONFIG, true)) {
+            journal.record(entry(0));
+        }
+
+        assertEquals(1, IsoRunJournal.load(path, CONFIG).size());
+    }
+
+    @Test
+    public void loadIgnoresJournalOfOtherConfig() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("run.journal");
+        writeRows(path, 0, 1);
+
+        assertTrue(IsoRunJournal.load(path, "other-fingerprint").isEmpty());
+    }
+
+    private static void writeRows(Path path, int... rows) throws Exception {
+        try (IsoRunJournal journal = IsoRunJournal.open(path, CONFIG, false)) {
+            for (int row : rows) {
+                journal.record(entry(row));
+            }
+        }
+    }
+
+    private static IsoRunJournal.Entry entry(int row) {
+        ValidationResult result = new ValidationResult();
+        result.addPassedField("4", "000000001000", "1000");
+        result.addFailedField("11", "000123", "124");
+        return new IsoRunJournal.Entry(row, "0100message" + row, 91, "00 - Approved", result);
+    }
+}
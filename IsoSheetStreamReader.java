@@ -0,0 +1,151 @@
+package utilities;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads one worksheet of an .xlsx file row by row through POI's event (SAX) API, so the
+ * workbook is never loaded into memory. Cells arrive as the text Excel displays, except that
+ * numbers in the General format are written out in full rather than in scientific notation,
+ * the same way {@link CreateIsoMessage#getCellValueAsString} reads them.
+ */
+public class IsoSheetStreamReader {
+
+    /**
+     * Receives the rows of the sheet in order; rows with no cells are not reported
+     */
+    public interface RowHandler {
+        /**
+         * @param rowIndex The 0-based row number
+         * @param values Cell text indexed by column, null where a cell is empty
+         */
+        void row(int rowIndex, String[] values) throws IOException;
+    }
+
+    /**
+     * Streams a worksheet
+     * @param filePath The workbook
+     * @param sheetName The sheet to read
+     * @param fallbackIndex The 0-based sheet read when no sheet has that name
+     * @param handler Receives each row
+     * @return The name of the sheet that was read
+     */
+    public static String read(String filePath, String sheetName, int fallbackIndex, RowHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(new File(filePath), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+
+            // Pick the sheet by name first, then by position, as generateIsoFromSpreadsheet does
+            List<String> sheetNames = new ArrayList<>();
+            XSSFReader.SheetIterator names = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (names.hasNext()) {
+                names.next().close();
+                sheetNames.add(names.getSheetName());
+            }
+            int target = sheetNames.indexOf(sheetName);
+            if (target < 0) {
+                target = fallbackIndex;
+            }
+            if (target >= sheetNames.size()) {
+                throw new IOException("Workbook " + filePath + " has no sheet '" + sheetName + "' or sheet " + (fallbackIndex + 1));
+            }
+
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            for (int index = 0; sheets.hasNext(); index++) {
+                try (InputStream sheet = sheets.next()) {
+                    if (index == target) {
+                        XMLReader parser = XMLHelper.newXMLReader();
+                        parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), null, strings,
+                                new RowCollector(handler), new PlainNumberFormatter(), false));
+                        parser.parse(new InputSource(sheet));
+                        return sheets.getSheetName();
+                    }
+                }
+            }
+            throw new IOException("Sheet " + (target + 1) + " not found in " + filePath);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Unable to read workbook " + filePath + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gathers the cells of each row and passes the finished row on
+     */
+    private static final class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final RowHandler handler;
+        private String[] values = new String[16];
+        private int lastColumn;
+        private int nextColumn;
+
+        RowCollector(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            Arrays.fill(values, null);
+            lastColumn = -1;
+            nextColumn = 0;
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+            if (column >= values.length) {
+                values = Arrays.copyOf(values, Math.max(column + 1, values.length * 2));
+            }
+            values[column] = formattedValue;
+            lastColumn = Math.max(lastColumn, column);
+            nextColumn = column + 1;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (lastColumn < 0) {
+                return;
+            }
+            try {
+                handler.row(rowNum, Arrays.copyOf(values, lastColumn + 1));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes General-format numbers in plain notation so long card numbers and amounts keep every digit
+     */
+    private static final class PlainNumberFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString) {
+            if (formatIndex == 0 || "General".equalsIgnoreCase(formatString)) {
+                String plain = new BigDecimal(String.valueOf(value)).toPlainString();
+                return plain.contains(".") ? plain.replaceAll("\\.?0*$", "") : plain;
+            }
+            return super.formatRawCellContents(value, formatIndex, formatString);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package utilities;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams decoded ISO messages into a workbook using the DE column layout read by
+ * {@link CreateIsoMessage#generateIsoFromSpreadsheet(String)}: DE keys in row 1, field names
+ * in row 2 and one message per row from row 6, DEs in columns B to CK.
+ * Rows are flushed to disk through an SXSSF window, so memory stays flat however many
+ * messages are written. A new sheet is started when one fills up.
+ */
+public class IsoSpreadsheetWriter implements Closeable {
+    static final String SHEET_NAME = "Auth STIP Integration";
+    static final int FIRST_DATA_ROW = 5;
+    static final int LAST_DE_COLUMN = 88;
+    static final int MESSAGE_COLUMN = 89;
+    static final int STATUS_COLUMN = 90;
+    private static final int ROW_WINDOW = 100;
+    private static final int MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    private final String filePath;
+    private final IsoFieldPlan plan;
+    private final SXSSFWorkbook workbook;
+    private final int[] columnFields;
+    private Sheet sheet;
+    private int nextRow;
+    private long rowsWritten;
+    private long rowsFailed;
+
+    /**
+     * Creates a writer for a new workbook
+     * @param filePath Where the workbook is written when the writer is closed
+     * @param plan The compiled field configuration, which also decides the column layout
+     */
+    public IsoSpreadsheetWriter(String filePath, IsoFieldPlan plan) {
+        this.filePath = filePath;
+        this.plan = plan;
+        this.workbook = new SXSSFWorkbook(ROW_WINDOW);
+        this.workbook.setCompressTempFiles(true);
+        this.columnFields = buildColumnLayout(plan);
+        startSheet();
+    }
+
+    /**
+     * Decodes a message and appends it as the next row.
+     * The whole message is decoded before any cell is written, so a row holds either every DE or none.
+     * Messages that cannot be decoded are still written, with the reason in the status column.
+     * @param isoMessage The raw ISO message
+     */
+    public void write(String isoMessage) {
+        Map<Integer, String> fields = null;
+        String error = null;
+        try {
+            fields = IsoMessageView.of(isoMessage, plan).toMap();
+        } catch (RuntimeException e) {
+            // Truncated or malformed messages surface as index and number errors as well as IllegalArgumentException
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+
+        if (nextRow >= MAX_ROWS) {
+            startSheet();
+        }
+        Row row = sheet.createRow(nextRow++);
+        row.createCell(MESSAGE_COLUMN).setCellValue(isoMessage);
+        if (fields != null) {
+            for (int col = 1; col < columnFields.length; col++) {
+                String value = fields.get(columnFields[col]);
+                if (value != null) {
+                    row.createCell(col).setCellValue(value);
+                }
+            }
+            row.createCell(STATUS_COLUMN).setCellValue("Decoded");
+        } else {
+            rowsFailed++;
+            row.createCell(STATUS_COLUMN).setCellValue("Error: " + error);
+        }
+        rowsWritten++;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public long getRowsFailed() {
+        return rowsFailed;
+    }
+
+    /**
+     * Writes the workbook to its file and removes the temporary row files
+     */
+    @Override
+    public void close() throws IOException {
+        try (FileOutputStream fos = new FileOutputStream(filePath)) {
+            workbook.write(fos);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private void startSheet() {
+        int sheetNumber = workbook.getNumberOfSheets();
+        sheet = workbook.createSheet(sheetNumber == 0 ? SHEET_NAME : SHEET_NAME + " (" + (sheetNumber + 1) + ")");
+
+        Row keyRow = sheet.createRow(0);
+        Row nameRow = sheet.createRow(1);
+        for (int col = 1; col < columnFields.length; col++) {
+            IsoFieldPlan.FieldDescriptor descriptor = plan.get(columnFields[col]);
+            keyRow.createCell(col).setCellValue(descriptor.getKey());
+            if (descriptor.getName() != null) {
+                nameRow.createCell(col).setCellValue(descriptor.getName());
+            }
+        }
+        keyRow.createCell(MESSAGE_COLUMN).setCellValue("Source ISO Message");
+        keyRow.createCell(STATUS_COLUMN).setCellValue("Decode Status");
+        nextRow = FIRST_DATA_ROW;
+    }
+
+    /**
+     * Maps columns B-CK to DE numbers: MTI first, then every configured DE in ascending order
+     */
+    private static int[] buildColumnLayout(IsoFieldPlan plan) {
+        List<Integer> fields = new ArrayList<>();
+        for (int field = 0; field <= IsoFieldPlan.MAX_FIELD; field++) {
+            IsoFieldPlan.FieldDescriptor descriptor = plan.get(field);
+            if (descriptor != null && descriptor.getEncoder() != IsoFieldPlan.Encoder.BITMAP) {
+                fields.add(field);
+            }
+        }
+        if (fields.size() > LAST_DE_COLUMN) {
+            System.out.println("Warning: " + fields.size() + " DEs configured but only " + LAST_DE_COLUMN
+                    + " columns available - DEs after " + fields.get(LAST_DE_COLUMN - 1) + " are not written");
+        }
+
+        int columns = Math.min(fields.size(), LAST_DE_COLUMN);
+        int[] layout = new int[columns + 1];
+        for (int col = 1; col <= columns; col++) {
+            layout[col] = fields.get(col - 1);
+        }
+        return layout;
+    }
+}
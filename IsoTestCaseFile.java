@@ -0,0 +1,379 @@
+package utilities;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test cases keyed by DE number, as an alternative to the "Auth STIP Integration" sheet.
+ * Two layouts are supported, chosen by file extension:
+ * <ul>
+ *   <li>.csv: a header line of DE keys, one test case per line. An optional first column named "row" holds the
+ *   1-based spreadsheet row number of each case; without it cases are numbered from row 6.</li>
+ *   <li>anything else (.isoc): a columnar file in which each column stores its distinct values once, followed
+ *   by one small index per row, so the repetitive values of a test suite take little space.</li>
+ * </ul>
+ * Both are read through a memory-mapped buffer, which limits a file to 2 GB. Rows are handed out in the same
+ * shape as {@link IsoSheetStreamReader}: row 0 is the header, with the DE keys from column 1 on, and data rows
+ * carry their values in the matching columns.
+ */
+public final class IsoTestCaseFile {
+    private static final byte[] MAGIC = {'I', 'S', 'O', 'C'};
+    private static final int VERSION = 1;
+    private static final String ROW_COLUMN = "row";
+
+    private IsoTestCaseFile() {
+    }
+
+    /**
+     * Reads every test case of a file
+     * @param path The .csv or columnar file
+     * @param handler Receives the header as row 0, then each test case
+     */
+    public static void read(Path path, IsoSheetStreamReader.RowHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Test case file " + path + " is larger than 2 GB");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (isCsv(path)) {
+                readCsv(path, buffer, handler);
+            } else {
+                readColumnar(path, buffer, handler);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Test case file " + path + " is truncated or corrupt", e);
+        }
+    }
+
+    /**
+     * Creates a test case file, in the layout given by its extension
+     * @param path The file to write
+     * @param keys The DE keys of the columns
+     */
+    public static TestCaseWriter create(Path path, String[] keys) throws IOException {
+        return isCsv(path) ? new CsvWriter(path, keys) : new ColumnarWriter(path, keys);
+    }
+
+    private static boolean isCsv(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith(".csv");
+    }
+
+    /**
+     * Receives test cases in increasing row order; the file is complete once closed
+     */
+    public interface TestCaseWriter extends Closeable {
+        /**
+         * @param rowIndex The 0-based spreadsheet row of the case
+         * @param values The value of each key, in key order; null or empty where a DE is not set
+         */
+        void write(int rowIndex, String[] values) throws IOException;
+    }
+
+    private static void readCsv(Path path, ByteBuffer buffer, IsoSheetStreamReader.RowHandler handler) throws IOException {
+        CsvParser parser = new CsvParser(buffer);
+        List<String> header = parser.nextRecord();
+        if (header == null) {
+            throw new IOException("Test case file " + path + " has no header line");
+        }
+        boolean hasRowColumn = !header.isEmpty() && ROW_COLUMN.equalsIgnoreCase(trimmed(header.get(0)));
+        int first = hasRowColumn ? 1 : 0;
+        handler.row(0, headerRow(header.subList(first, header.size()).toArray(new String[0])));
+
+        int previous = IsoSpreadsheetWriter.FIRST_DATA_ROW - 1;
+        List<String> record;
+        while ((record = parser.nextRecord()) != null) {
+            if (record.size() == 1 && trimmed(record.get(0)) == null) {
+                continue; // Blank line
+            }
+            int rowIndex = previous + 1;
+            if (hasRowColumn && trimmed(record.get(0)) != null) {
+                try {
+                    rowIndex = Integer.parseInt(trimmed(record.get(0))) - 1;
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid row number '" + record.get(0) + "' in " + path);
+                }
+            }
+            if (rowIndex <= previous) {
+                throw new IOException("Row " + (rowIndex + 1) + " in " + path + " must come after row " + (previous + 1));
+            }
+
+            String[] values = new String[header.size() - first + 1];
+            for (int i = first; i < record.size() && i < header.size(); i++) {
+                values[i - first + 1] = record.get(i);
+            }
+            handler.row(rowIndex, values);
+            previous = rowIndex;
+        }
+    }
+
+    private static void readColumnar(Path path, ByteBuffer buffer, IsoSheetStreamReader.RowHandler handler) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException(path + " is not a columnar test case file");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported test case file version " + version + " in " + path);
+        }
+        int rowCount = buffer.getInt();
+        int columnCount = buffer.getInt();
+
+        int rowsStart = buffer.position();
+        buffer.position(rowsStart + rowCount * Integer.BYTES);
+
+        String[] keys = new String[columnCount];
+        String[][] dictionaries = new String[columnCount][];
+        int[] widths = new int[columnCount];
+        int[] indexStarts = new int[columnCount];
+        for (int column = 0; column < columnCount; column++) {
+            keys[column] = readString(buffer);
+            String[] dictionary = new String[buffer.getInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = readString(buffer);
+            }
+            dictionaries[column] = dictionary;
+            widths[column] = buffer.get();
+            indexStarts[column] = buffer.position();
+            buffer.position(indexStarts[column] + rowCount * widths[column]);
+        }
+
+        handler.row(0, headerRow(keys));
+        for (int row = 0; row < rowCount; row++) {
+            String[] values = new String[columnCount + 1];
+            for (int column = 0; column < columnCount; column++) {
+                int at = indexStarts[column] + row * widths[column];
+                int index = widths[column] == 1 ? buffer.get(at) & 0xFF
+                        : widths[column] == 2 ? buffer.getShort(at) & 0xFFFF
+                        : buffer.getInt(at);
+                if (index > 0) {
+                    values[column + 1] = dictionaries[column][index - 1];
+                }
+            }
+            handler.row(buffer.getInt(rowsStart + row * Integer.BYTES), values);
+        }
+    }
+
+    private static String[] headerRow(String[] keys) {
+        String[] header = new String[keys.length + 1];
+        header[0] = "Key";
+        for (int i = 0; i < keys.length; i++) {
+            header[i + 1] = keys[i] != null ? keys[i].trim() : "";
+        }
+        return header;
+    }
+
+    private static String trimmed(String value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Splits RFC 4180 records straight out of the mapped bytes; empty fields come back as null
+     */
+    private static final class CsvParser {
+        private final ByteBuffer buffer;
+        private byte[] field = new byte[256];
+
+        CsvParser(ByteBuffer buffer) {
+            this.buffer = buffer;
+            // Skip a UTF-8 byte order mark
+            if (buffer.remaining() >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF) {
+                buffer.position(3);
+            }
+        }
+
+        List<String> nextRecord() {
+            if (!buffer.hasRemaining()) {
+                return null;
+            }
+            List<String> record = new ArrayList<>();
+            int length = 0;
+            boolean quoted = false;
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (quoted) {
+                    if (b == '"') {
+                        if (buffer.hasRemaining() && buffer.get(buffer.position()) == '"') {
+                            buffer.get();
+                            length = append(length, b);
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        length = append(length, b);
+                    }
+                } else if (b == '"') {
+                    quoted = true;
+                } else if (b == ',') {
+                    record.add(text(length));
+                    length = 0;
+                } else if (b == '\n') {
+                    break;
+                } else if (b != '\r') {
+                    length = append(length, b);
+                }
+            }
+            record.add(text(length));
+            return record;
+        }
+
+        private int append(int length, byte b) {
+            if (length == field.length) {
+                field = Arrays.copyOf(field, length * 2);
+            }
+            field[length] = b;
+            return length + 1;
+        }
+
+        private String text(int length) {
+            return length == 0 ? null : new String(field, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class CsvWriter implements TestCaseWriter {
+        private final Writer writer;
+
+        CsvWriter(Path path, String[] keys) throws IOException {
+            this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+            writer.write(ROW_COLUMN);
+            for (String key : keys) {
+                writer.write(',');
+                writer.write(escape(key));
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(int rowIndex, String[] values) throws IOException {
+            writer.write(Integer.toString(rowIndex + 1));
+            for (String value : values) {
+                writer.write(',');
+                writer.write(escape(value));
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+
+        private static String escape(String value) {
+            if (value == null || value.isEmpty()) {
+                return "";
+            }
+            boolean needsQuotes = value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                    || value.indexOf('\r') >= 0 || !value.equals(value.trim());
+            return needsQuotes ? '"' + value.replace("\"", "\"\"") + '"' : value;
+        }
+    }
+
+    /**
+     * Collects the cases column by column and writes the file when closed
+     */
+    private static final class ColumnarWriter implements TestCaseWriter {
+        private final Path path;
+        private final String[] keys;
+        private final List<Map<String, Integer>> dictionaries = new ArrayList<>();
+        private final int[][] indexes;
+        private int[] rowIndexes = new int[1024];
+        private int rowCount;
+
+        ColumnarWriter(Path path, String[] keys) {
+            this.path = path;
+            this.keys = keys.clone();
+            this.indexes = new int[keys.length][rowIndexes.length];
+            for (int i = 0; i < keys.length; i++) {
+                dictionaries.add(new HashMap<>());
+            }
+        }
+
+        @Override
+        public void write(int rowIndex, String[] values) {
+            if (rowCount == rowIndexes.length) {
+                rowIndexes = Arrays.copyOf(rowIndexes, rowCount * 2);
+                for (int column = 0; column < indexes.length; column++) {
+                    indexes[column] = Arrays.copyOf(indexes[column], rowCount * 2);
+                }
+            }
+            rowIndexes[rowCount] = rowIndex;
+            for (int column = 0; column < keys.length; column++) {
+                String value = column < values.length ? values[column] : null;
+                if (value != null && !value.isEmpty()) {
+                    Map<String, Integer> dictionary = dictionaries.get(column);
+                    indexes[column][rowCount] = dictionary.computeIfAbsent(value, key -> dictionary.size() + 1);
+                }
+            }
+            rowCount++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+                out.write(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(rowCount);
+                out.writeInt(keys.length);
+                for (int row = 0; row < rowCount; row++) {
+                    out.writeInt(rowIndexes[row]);
+                }
+
+                for (int column = 0; column < keys.length; column++) {
+                    writeString(out, keys[column]);
+                    Map<String, Integer> dictionary = dictionaries.get(column);
+                    String[] values = new String[dictionary.size()];
+                    dictionary.forEach((value, index) -> values[index - 1] = value);
+                    out.writeInt(values.length);
+                    for (String value : values) {
+                        writeString(out, value);
+                    }
+
+                    int width = values.length < 0xFF ? 1 : values.length < 0xFFFF ? 2 : 4;
+                    out.writeByte(width);
+                    for (int row = 0; row < rowCount; row++) {
+                        int index = indexes[column][row];
+                        if (width == 1) {
+                            out.writeByte(index);
+                        } else if (width == 2) {
+                            out.writeShort(index);
+                        } else {
+                            out.writeInt(index);
+                        }
+                    }
+                }
+            }
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
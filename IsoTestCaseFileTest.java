@@ -0,0 +1,122 @@
+package utilities;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Writes test cases with IsoTestCaseFile.create and reads them back with IsoTestCaseFile.read, in both layouts
+ */
+public class IsoTestCaseFileTest {
+    private static final String[] KEYS = {"MTI", "2", "43", "48"};
+    private static final String[][] CASES = {
+            {"0100", "5314451120000000", "SHOP, \"MAIN\" STREET", "  padded  "},
+            {"0200", "", null, "line one\nline two"},
+            {"0100", null, "Ünïcode café", "trailing "},
+    };
+    private static final int[] ROWS = {5, 6, 9};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void csvRoundTrip() throws Exception {
+        assertRoundTrip(folder.getRoot().toPath().resolve("cases.csv"));
+    }
+
+    @Test
+    public void columnarRoundTrip() throws Exception {
+        assertRoundTrip(folder.getRoot().toPath().resolve("cases.isoc"));
+    }
+
+    @Test
+    public void columnarRoundTripWithWideIndexes() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("wide.isoc");
+        int rows = 300; // More distinct values than a one-byte index can address
+        try (IsoTestCaseFile.TestCaseWriter writer = IsoTestCaseFile.create(path, new String[]{"11"})) {
+            for (int row = 0; row < rows; row++) {
+                writer.write(IsoSpreadsheetWriter.FIRST_DATA_ROW + row, new String[]{String.format("%06d", row)});
+            }
+        }
+
+        List<String[]> read = read(path);
+        assertEquals(rows + 1, read.size());
+        for (int row = 0; row < rows; row++) {
+            assertEquals(String.format("%06d", row), read.get(row + 1)[2]);
+        }
+    }
+
+    @Test
+    public void csvWithoutRowColumnIsNumberedFromFirstDataRow() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("plain.csv");
+        Files.write(path, "MTI,2\r\n0100,\"4111,1111\"\r\n\r\n0200,\r\n".getBytes(StandardCharsets.UTF_8));
+
+        List<String[]> read = read(path);
+
+        assertEquals(3, read.size());
+        assertArrayEquals(new String[]{"0", "Key", "MTI", "2"}, read.get(0));
+        assertArrayEquals(new String[]{String.valueOf(IsoSpreadsheetWriter.FIRST_DATA_ROW), null, "0100", "4111,1111"}, read.get(1));
+        assertArrayEquals(new String[]{String.valueOf(IsoSpreadsheetWriter.FIRST_DATA_ROW + 1), null, "0200", null}, read.get(2));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedColumnarFileIsRejected() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("cases.isoc");
+        write(path);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 3));
+
+        read(path);
+    }
+
+    private void assertRoundTrip(Path path) throws Exception {
+        write(path);
+
+        List<String[]> read = read(path);
+
+        assertEquals(CASES.length + 1, read.size());
+        assertArrayEquals(new String[]{"0", "Key", "MTI", "2", "43", "48"}, read.get(0));
+        for (int i = 0; i < CASES.length; i++) {
+            String[] expected = new String[KEYS.length + 2];
+            expected[0] = String.valueOf(ROWS[i]);
+            for (int column = 0; column < KEYS.length; column++) {
+                String value = CASES[i][column];
+                // Empty and missing values both read back as absent
+                expected[column + 2] = value == null || value.isEmpty() ? null : value;
+            }
+            assertArrayEquals("Row " + ROWS[i], expected, read.get(i + 1));
+        }
+    }
+
+    private static void write(Path path) throws IOException {
+        try (IsoTestCaseFile.TestCaseWriter writer = IsoTestCaseFile.create(path, KEYS)) {
+            for (int i = 0; i < CASES.length; i++) {
+                writer.write(ROWS[i], CASES[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads a file into rows of [row index, values...]
+     */
+    private static List<String[]> read(Path path) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        IsoTestCaseFile.read(path, (rowIndex, values) -> {
+            String[] row = new String[values.length + 1];
+            row[0] = String.valueOf(rowIndex);
+            System.arraycopy(values, 0, row, 1, values.length);
+            rows.add(row);
+        });
+        return rows;
+    }
+}
@@ -0,0 +1,172 @@
+package websocket;
+
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Long-lived WebSocket session that matches each response frame to the request it answers.
+ * Every request gets a CompletableFuture that completes as soon as the frame with the same
+ * correlation key arrives, or fails when its timeout expires or the connection drops.
+ * Up to a configurable window of requests are pipelined on the one socket; each request
+ * takes a credit that is handed back when it completes, and senders block while none are left.
+ * A frame that cannot be parsed or matched fails the request in flight if there is only one,
+ * and is otherwise logged with its raw text.
+ */
+public class IsoWebSocketSession extends org.java_websocket.client.WebSocketClient {
+    private static final Logger logger = Logger.getLogger(IsoWebSocketSession.class.getName());
+
+    private final Function<String, String> correlationKey;
+    private final Map<String, CompletableFuture<String>> pending = new ConcurrentHashMap<>();
+    private final Semaphore credits;
+    private final int window;
+
+    /**
+     * Creates a session that sends one request at a time
+     * @param serverUri The WebSocket server
+     * @param correlationKey Extracts the key shared by a request and its response
+     */
+    public IsoWebSocketSession(URI serverUri, Function<String, String> correlationKey) {
+        this(serverUri, correlationKey, 1);
+    }
+
+    /**
+     * @param serverUri The WebSocket server
+     * @param correlationKey Extracts the key shared by a request and its response
+     * @param window The maximum number of requests awaiting a response at once
+     */
+    public IsoWebSocketSession(URI serverUri, Function<String, String> correlationKey, int window) {
+        super(serverUri);
+        if (window < 1) {
+            throw new IllegalArgumentException("In-flight window must be at least 1");
+        }
+        this.correlationKey = correlationKey;
+        this.window = window;
+        this.credits = new Semaphore(window, true);
+    }
+
+    /**
+     * Connects to the server and waits for the handshake
+     * @return true if the session is open
+     */
+    public boolean open(Duration timeout) throws InterruptedException {
+        return connectBlocking(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends a request and returns a future for its matching response.
+     * Blocks while the in-flight window is full.
+     * @param request The message to send
+     * @param timeout How long to wait for the response before failing the future with a TimeoutException
+     */
+    public CompletableFuture<String> sendRequest(String request, Duration timeout) throws InterruptedException {
+        CompletableFuture<String> response = new CompletableFuture<>();
+        String key;
+        try {
+            key = correlationKey.apply(request);
+        } catch (RuntimeException e) {
+            response.completeExceptionally(e);
+            return response;
+        }
+
+        credits.acquire();
+        if (pending.putIfAbsent(key, response) != null) {
+            credits.release();
+            response.completeExceptionally(new IllegalStateException("A request with correlation key " + key + " is already in flight"));
+            return response;
+        }
+        response.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((message, error) -> {
+                    pending.remove(key, response);
+                    credits.release();
+                });
+
+        try {
+            send(request);
+        } catch (RuntimeException e) {
+            response.completeExceptionally(e);
+        }
+        return response;
+    }
+
+    /**
+     * Gets the number of requests still waiting for a response
+     */
+    public int getInFlightCount() {
+        return pending.size();
+    }
+
+    /**
+     * Gets the maximum number of requests that may await a response at once
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * Gets the number of requests that can still be sent without blocking
+     */
+    public int getAvailableCredits() {
+        return credits.availablePermits();
+    }
+
+    @Override
+    public void onOpen(ServerHandshake handshake) {
+        logger.info("Connected to the WebSocket server.");
+    }
+
+    @Override
+    public void onMessage(String message) {
+        String key;
+        RuntimeException parseError = null;
+        try {
+            key = correlationKey.apply(message);
+        } catch (RuntimeException e) {
+            key = null;
+            parseError = e;
+        }
+
+        CompletableFuture<String> response = key != null ? pending.remove(key) : null;
+        if (response != null) {
+            response.complete(message);
+            return;
+        }
+
+        String problem = parseError != null
+                ? "Unparseable WebSocket response (" + parseError.getMessage() + ")"
+                : "WebSocket response with correlation key " + key + " matches no request in flight";
+        // With one request in flight the frame can only be its answer, so fail it now instead of letting it time out
+        Iterator<Map.Entry<String, CompletableFuture<String>>> inFlight = pending.entrySet().iterator();
+        if (pending.size() == 1 && inFlight.hasNext()) {
+            Map.Entry<String, CompletableFuture<String>> only = inFlight.next();
+            if (pending.remove(only.getKey(), only.getValue())) {
+                only.getValue().completeExceptionally(new IOException(problem + ": " + message, parseError));
+                return;
+            }
+        }
+        logger.warning(problem + ", " + pending.size() + " requests in flight: " + message);
+    }
+
+    @Override
+    public void onClose(int code, String reason, boolean remote) {
+        logger.info("Closed connection to the WebSocket server." + reason);
+        IOException closed = new IOException("WebSocket closed before a response arrived: " + reason);
+        pending.values().forEach(response -> response.completeExceptionally(closed));
+        pending.clear();
+    }
+
+    @Override
+    public void onError(Exception ex) {
+        logger.info("Error: " + ex.getMessage());
+    }
+}
@@ -1,12 +1,39 @@
 package utilities;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.apache.poi.ss.usermodel.*;
 
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public class ValidationResultManager {
+    /**
+     * Orders DE keys the way results are listed: MTI first, then numerically, with a string comparison for anything else
+     */
+    static final Comparator<String> DE_ORDER = (de1, de2) -> {
+        if (de1.equals(de2)) return 0;
+        // Handle MTI specially
+        if (de1.equals("MTI")) return -1;
+        if (de2.equals("MTI")) return 1;
+
+        // Convert DEs to integers for numeric comparison
+        try {
+            return Integer.compare(Integer.parseInt(de1), Integer.parseInt(de2));
+        } catch (NumberFormatException e) {
+            // Fallback to string comparison if parsing fails
+            return de1.compareTo(de2);
+        }
+    };
+
     /**
      * Enum to represent field validation status
      */
@@ -119,22 +146,8 @@ public class ValidationResultManager {
             System.out.printf("%-6s | %-15s | %-40s | %-40s | %s%n", "DE", "Status", "ISO Value", "Canonical Value", "Mapping");
             System.out.println("-".repeat(120));
 
-            // Create a sorted map with custom comparator for numeric DE sorting
-            Map<String, FieldResult> sortedResults = new TreeMap<>((de1, de2) -> {
-                // Handle MTI specially
-                if (de1.equals("MTI")) return -1;
-                if (de2.equals("MTI")) return 1;
-
-                // Convert DEs to integers for numeric comparison
-                try {
-                    int num1 = Integer.parseInt(de1);
-                    int num2 = Integer.parseInt(de2);
-                    return Integer.compare(num1, num2);
-                } catch (NumberFormatException e) {
-                    // Fallback to string comparison if parsing fails
-                    return de1.compareTo(de2);
-                }
-            });
+            // Sort the results in DE order
+            Map<String, FieldResult> sortedResults = new TreeMap<>(DE_ORDER);
             sortedResults.putAll(results);
 
             // Print the sorted results
@@ -252,21 +265,8 @@ public class ValidationResultManager {
             validationSheet.setColumnWidth(6, 60 * 256);  // Details
         }
 
-        // Create a sorted map with custom comparator for numeric DE sorting
-        Map<String, FieldResult> sortedResults = new TreeMap<>((de1, de2) -> {
-            // Handle MTI specially
-            if (de1.equals("MTI")) return -1;
-            if (de2.equals("MTI")) return 1;
-
-            // Convert DEs to integers for numeric comparison
-            try {
-                int num1 = Integer.parseInt(de1);
-                int num2 = Integer.parseInt(de2);
-                return Integer.compare(num1, num2);
-            } catch (NumberFormatException e) {
-                return de1.compareTo(de2);
-            }
-        });
+        // Sort the results in DE order
+        Map<String, FieldResult> sortedResults = new TreeMap<>(DE_ORDER);
         sortedResults.putAll(results.getResults());
 
         // Add results for each DE
@@ -309,58 +309,118 @@ public class ValidationResultManager {
     }
 
     /**
-     * Class to hold aggregated validation results across multiple ISO messages
+     * Class to hold aggregated validation results across multiple ISO messages.
+     * Rows are folded in as they finish, so memory stays the same however many rows a run has:
+     * only counters per DE and a reservoir sample of at most iso.results.failureSamples failure
+     * reasons per DE are kept. The full per-row detail can be spilled to a JSON Lines file instead.
      */
     @Getter
-    public static class AggregatedResults {
-        private final int totalMessages;
-        private final int totalFields;
+    public static class AggregatedResults implements Closeable {
+        private static final int FAILURE_SAMPLES = Math.max(1, Integer.getInteger("iso.results.failureSamples", 10));
+        private static final ObjectMapper objectMapper = new ObjectMapper();
+
+        private int totalMessages;
+        private int totalFields;
+        private long totalPassed;
+        private long totalFailed;
+        private long totalSkipped;
         private final Map<String, Integer> passedByDE = new HashMap<>();
         private final Map<String, Integer> failedByDE = new HashMap<>();
         private final Map<String, Integer> skippedByDE = new HashMap<>();
         private final Map<String, List<String>> failureReasonsByDE = new HashMap<>();
-        private final Map<Integer, Map<String, FieldResult>> resultsByRow = new HashMap<>();
-        private final List<RowSummary> rowSummaries = new ArrayList<>();
+        @Getter(AccessLevel.NONE)
+        private final Random sampler = new Random(0);
+        @Getter(AccessLevel.NONE)
+        private BufferedWriter detailWriter;
+
+        public AggregatedResults() {
+        }
 
         public AggregatedResults(int totalMessages, int totalFields) {
             this.totalMessages = totalMessages;
             this.totalFields = totalFields;
         }
 
-        public void addRowSummary(RowSummary summary) {
-            if (summary != null) {
-                rowSummaries.add(summary);
-            }
+        /**
+         * Writes every field result added from now on to a JSON Lines file, one line per row
+         * @param path The file to create
+         */
+        public synchronized void spillDetailsTo(Path path) throws IOException {
+            close();
+            detailWriter = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
         }
 
-        public List<RowSummary> getRowSummaries() {
-            return Collections.unmodifiableList(rowSummaries);
+        /**
+         * Folds one validated row into the totals
+         * @param rowNumber The 1-based spreadsheet row
+         * @param result The row's field results
+         */
+        public synchronized void addRow(int rowNumber, ValidationResult result) {
+            totalMessages++;
+            totalFields += result.getResults().size();
+            result.getResults().forEach((de, fieldResult) -> addResult(rowNumber, de, fieldResult));
+            if (detailWriter != null) {
+                writeDetail(rowNumber, result);
+            }
         }
 
-        public void addResult(int rowNumber, String de, FieldResult result) {
-            // Store result by row
-            resultsByRow.computeIfAbsent(rowNumber, k -> new HashMap<>()).put(de, result);
-
+        public synchronized void addResult(int rowNumber, String de, FieldResult result) {
             // Update counters based on status
             switch (result.getStatus()) {
                 case PASSED:
+                    totalPassed++;
                     passedByDE.merge(de, 1, Integer::sum);
                     break;
                 case FAILED:
-                    failedByDE.merge(de, 1, Integer::sum);
-                    failureReasonsByDE.computeIfAbsent(de, k -> new ArrayList<>())
-                            .add(String.format("Row %d: %s", rowNumber, result.getActual()));
+                    totalFailed++;
+                    int failures = failedByDE.merge(de, 1, Integer::sum);
+                    sampleFailure(de, failures, String.format("Row %d: %s", rowNumber, result.getActual()));
                     break;
                 case SKIPPED:
+                    totalSkipped++;
                     skippedByDE.merge(de, 1, Integer::sum);
                     break;
             }
         }
 
+        /**
+         * Keeps each of a DE's failure reasons with equal probability, never more than FAILURE_SAMPLES of them
+         */
+        private void sampleFailure(String de, int failures, String reason) {
+            List<String> reasons = failureReasonsByDE.computeIfAbsent(de, k -> new ArrayList<>());
+            if (reasons.size() < FAILURE_SAMPLES) {
+                reasons.add(reason);
+            } else {
+                int slot = sampler.nextInt(failures);
+                if (slot < FAILURE_SAMPLES) {
+                    reasons.set(slot, reason);
+                }
+            }
+        }
+
+        private void writeDetail(int rowNumber, ValidationResult result) {
+            ObjectNode row = objectMapper.createObjectNode();
+            row.put("row", rowNumber);
+            ObjectNode fields = row.putObject("fields");
+            result.getResults().forEach((de, fieldResult) -> {
+                ObjectNode field = fields.putObject(de);
+                field.put("status", fieldResult.getStatus().name());
+                field.put("expected", fieldResult.getExpected());
+                field.put("actual", fieldResult.getActual());
+            });
+            try {
+                detailWriter.write(objectMapper.writeValueAsString(row));
+                detailWriter.newLine();
+            } catch (IOException e) {
+                System.out.println("Warning: Stopped writing validation details: " + e.getMessage());
+                close();
+            }
+        }
+
         /**
          * Gets the success rate for a specific DE
          */
-        public double getSuccessRate(String de) {
+        public synchronized double getSuccessRate(String de) {
             int total = passedByDE.getOrDefault(de, 0) + failedByDE.getOrDefault(de, 0) + skippedByDE.getOrDefault(de, 0);
             return total > 0 ? (double) passedByDE.getOrDefault(de, 0) / total : 0.0;
         }
@@ -368,7 +428,7 @@ public class ValidationResultManager {
         /**
          * Gets DEs sorted by failure rate (highest first), including all processed DEs
          */
-        public List<String> getDEsByFailureRate() {
+        public synchronized List<String> getDEsByFailureRate() {
             // Collect all unique DEs from passed, failed, and skipped results
             Set<String> allDEs = new HashSet<>();
             allDEs.addAll(passedByDE.keySet());
@@ -387,27 +447,16 @@ public class ValidationResultManager {
         /**
          * Gets a summary of the aggregated results
          */
-        public String getSummary() {
+        public synchronized String getSummary() {
             StringBuilder summary = new StringBuilder();
             summary.append("\n=== Aggregated Validation Results ===\n");
             summary.append(String.format("Total ISO Messages: %d\n", totalMessages));
             summary.append(String.format("Total Fields Validated: %d\n", totalFields));
 
-            // Calculate overall statistics from row summaries
-            int totalPassed = 0;
-            int totalFailed = 0;
-            int totalSkipped = 0;
-
-            for (RowSummary rowSummary : rowSummaries) {
-                totalPassed += rowSummary.getPassCount();
-                totalFailed += rowSummary.getFailCount();
-                totalSkipped += rowSummary.getSkipCount();
-            }
-
             summary.append(String.format("\nOverall Results:\n"));
-            summary.append(String.format("Passed: %d (%.2f%%)\n", totalPassed, (double) totalPassed / totalFields * 100));
-            summary.append(String.format("Failed: %d (%.2f%%)\n", totalFailed, (double) totalFailed / totalFields * 100));
-            summary.append(String.format("Skipped: %d (%.2f%%)\n", totalSkipped, (double) totalSkipped / totalFields * 100));
+            summary.append(String.format("Passed: %d (%.2f%%)\n", totalPassed, percentOfFields(totalPassed)));
+            summary.append(String.format("Failed: %d (%.2f%%)\n", totalFailed, percentOfFields(totalFailed)));
+            summary.append(String.format("Skipped: %d (%.2f%%)\n", totalSkipped, percentOfFields(totalSkipped)));
 
             // Results by DE
             List<String> allDEs = getDEsByFailureRate();
@@ -430,8 +479,11 @@ public class ValidationResultManager {
                     summary.append(String.format("  Skipped: %d\n", skipped));
 
                     if (failed > 0 && failureReasonsByDE.containsKey(de)) {
-                        summary.append("  Failure Reasons:\n");
-                        failureReasonsByDE.get(de).forEach(reason -> 
+                        List<String> reasons = failureReasonsByDE.get(de);
+                        summary.append(reasons.size() < failed
+                                ? String.format("  Failure Reasons (sample of %d):\n", reasons.size())
+                                : "  Failure Reasons:\n");
+                        reasons.forEach(reason ->
                             summary.append("    - ").append(reason).append("\n"));
                     }
                 }
@@ -439,6 +491,25 @@ public class ValidationResultManager {
 
             return summary.toString();
         }
+
+        private double percentOfFields(long count) {
+            return totalFields > 0 ? (double) count / totalFields * 100 : 0.0;
+        }
+
+        /**
+         * Flushes and closes the detail file, if one is being written
+         */
+        @Override
+        public synchronized void close() {
+            if (detailWriter != null) {
+                try {
+                    detailWriter.close();
+                } catch (IOException e) {
+                    System.out.println("Warning: Could not close validation details file: " + e.getMessage());
+                }
+                detailWriter = null;
+            }
+        }
     }
 
     /**
@@ -447,39 +518,8 @@ public class ValidationResultManager {
      * @return Aggregated results object
      */
     public static AggregatedResults aggregateResults(Map<Integer, ValidationResult> results) {
-        // Calculate total fields from row summaries to ensure consistency
-        int totalFields = results.values().stream()
-                .mapToInt(r -> r.getResults().size())
-                .sum();
-
-        AggregatedResults aggregated = new AggregatedResults(results.size(), totalFields);
-
-        // Process each row's results
-        results.forEach((rowNumber, validationResult) -> {
-            // Add the row summary if available
-            if (validationResult.getLastRowSummary() != null) {
-                aggregated.addRowSummary(validationResult.getLastRowSummary());
-                
-                // Update per-DE statistics
-                Map<String, FieldResult> rowResults = validationResult.getResults();
-                rowResults.forEach((de, fieldResult) -> {
-                    switch (fieldResult.getStatus()) {
-                        case PASSED:
-                            aggregated.passedByDE.merge(de, 1, Integer::sum);
-                            break;
-                        case FAILED:
-                            aggregated.failedByDE.merge(de, 1, Integer::sum);
-                            aggregated.failureReasonsByDE.computeIfAbsent(de, k -> new ArrayList<>())
-                                    .add(String.format("Row %d: %s", rowNumber, fieldResult.getActual()));
-                            break;
-                        case SKIPPED:
-                            aggregated.skippedByDE.merge(de, 1, Integer::sum);
-                            break;
-                    }
-                });
-            }
-        });
-
+        AggregatedResults aggregated = new AggregatedResults();
+        results.forEach(aggregated::addRow);
         return aggregated;
     }
-} 
\ No newline at end of file
+}
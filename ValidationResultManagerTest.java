@@ -0,0 +1,82 @@
+package utilities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static utilities.ValidationResultManager.*;
+
+/**
+ * Folds rows into AggregatedResults and checks the totals and the bounded failure sample
+ */
+public class ValidationResultManagerTest {
+    private static final int FAILURE_SAMPLES = Math.max(1, Integer.getInteger("iso.results.failureSamples", 10));
+
+    @Test
+    public void failureSampleNeverExceedsItsBound() {
+        AggregatedResults totals = new AggregatedResults();
+        int rows = FAILURE_SAMPLES * 50;
+        for (int row = 1; row <= rows; row++) {
+            totals.addRow(row, failingRow(row));
+        }
+
+        List<String> reasons = totals.getFailureReasonsByDE().get("11");
+        assertEquals(FAILURE_SAMPLES, reasons.size());
+        assertEquals(rows, (int) totals.getFailedByDE().get("11"));
+        assertEquals(rows, (int) totals.getPassedByDE().get("4"));
+        assertEquals(rows, totals.getTotalMessages());
+        assertEquals(rows * 2, totals.getTotalFields());
+
+        // Every sampled reason is a distinct failure that was actually added
+        Set<String> distinct = new HashSet<>(reasons);
+        assertEquals(reasons.size(), distinct.size());
+        for (String reason : reasons) {
+            int row = Integer.parseInt(reason.substring("Row ".length(), reason.indexOf(':')));
+            assertTrue(row >= 1 && row <= rows);
+            assertEquals("Row " + row + ": actual" + row, reason);
+        }
+        assertTrue(totals.getSummary().contains("Failure Reasons (sample of " + FAILURE_SAMPLES + ")"));
+    }
+
+    @Test
+    public void failuresBelowTheBoundAreAllKept() {
+        AggregatedResults totals = new AggregatedResults();
+        List<String> expected = new ArrayList<>();
+        for (int row = 1; row < FAILURE_SAMPLES; row++) {
+            totals.addRow(row, failingRow(row));
+            expected.add("Row " + row + ": actual" + row);
+        }
+
+        assertEquals(expected, totals.getFailureReasonsByDE().get("11"));
+        assertFalse(totals.getSummary().contains("sample of"));
+    }
+
+    @Test
+    public void summaryWithoutFieldsReportsZeroPercent() {
+        String summary = new AggregatedResults().getSummary();
+
+        assertFalse(summary.contains("NaN"));
+        assertTrue(summary.contains("Passed: 0 (0.00%)"));
+        assertTrue(summary.contains("No Data Elements were processed."));
+    }
+
+    @Test
+    public void deOrderPutsMtiFirstThenNumbers() {
+        List<String> des = new ArrayList<>(Arrays.asList("100", "PrimaryBitmap", "11", "MTI", "2", "39"));
+        des.sort(DE_ORDER);
+
+        assertEquals(Arrays.asList("MTI", "2", "11", "39", "100", "PrimaryBitmap"), des);
+    }
+
+    private static ValidationResult failingRow(int row) {
+        ValidationResult result = new ValidationResult();
+        result.addPassedField("4", "000000001000", "1000");
+        result.addFailedField("11", "000123", "actual" + row);
+        return result;
+    }
+}